@@ -0,0 +1,58 @@
+package src.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler and prints the throughput next to the bytes allocated per operation,
+ * the two numbers a codec or dispatch change is judged by.
+ * <p>
+ * Usage: {@code java -cp <classpath> src.benchmarks.BenchmarkRunner [regex]}, the regex selects the benchmarks and
+ * defaults to all codec and dispatch benchmarks, e.g. {@code MessageCodecBenchmark.decode} runs only the decoders.
+ */
+public class BenchmarkRunner {
+    private static final String DEFAULT_INCLUDE = "src\\.benchmarks\\.(codec|dispatch)\\..*";
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : DEFAULT_INCLUDE)
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.printf("%-60s %-22s %16s %12s%n", "Benchmark", "Params", "Score", "B/op");
+        for (RunResult result : results) {
+            String name = result.getParams().getBenchmark().replaceFirst("^src\\.benchmarks\\.", "");
+            StringBuilder params = new StringBuilder();
+            for (String key : result.getParams().getParamsKeys()) {
+                params.append(params.isEmpty() ? "" : ",").append(key).append('=').append(result.getParams().getParam(key));
+            }
+
+            Result<?> primary = result.getPrimaryResult();
+            System.out.printf("%-60s %-22s %10.1f %-5s %12s%n", name, params, primary.getScore(), primary.getScoreUnit(),
+                    allocatedPerOperation(result));
+        }
+    }
+
+    /**
+     * Get the normalized allocation rate of the GC profiler, its name differs between JMH versions.
+     */
+    private static String allocatedPerOperation(RunResult result) {
+        for (String key : new String[]{"gc.alloc.rate.norm", "·gc.alloc.rate.norm"}) {
+            Result<?> allocation = result.getSecondaryResults().get(key);
+            if (allocation != null) {
+                return String.format("%.1f", allocation.getScore());
+            }
+        }
+        return "n/a";
+    }
+}
@@ -0,0 +1,66 @@
+package src.benchmarks.codec;
+
+import org.openjdk.jmh.annotations.*;
+import shared.messages.model.server.Broadcast;
+import shared.utils.JsonUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the codec table in {@link JsonUtils} with the previous implementation in {@link LegacyJsonUtils}.
+ * <ul>
+ *     <li>decode: an incoming BROADCAST_REQ line, the legacy path decodes the bytes to a String first like the
+ *     old BufferedReader based parser did, the codec parses the byte frame directly</li>
+ *     <li>encode: an outgoing BROADCAST message</li>
+ *     <li>commandLookup: the command of a message class, done for every outgoing and incoming message</li>
+ * </ul>
+ * Run with {@code -prof gc} to compare the allocation rate as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    private byte[] frame;
+    private Broadcast broadcast;
+
+    @Setup
+    public void setup() {
+        frame = "BROADCAST_REQ {\"message\":\"Hello everyone, how is it going?\"}\r\n".getBytes(StandardCharsets.UTF_8);
+        broadcast = new Broadcast("someone", "Hello everyone, how is it going?");
+    }
+
+    @Benchmark
+    public Object decodeLegacy() {
+        String line = new String(frame, 0, frame.length - 2, StandardCharsets.UTF_8);
+        return LegacyJsonUtils.messageToClass(line.trim());
+    }
+
+    @Benchmark
+    public Object decodeCodec() {
+        return JsonUtils.messageToClass(frame, 0, frame.length - 2);
+    }
+
+    @Benchmark
+    public String encodeLegacy() {
+        return LegacyJsonUtils.classToMessage(broadcast);
+    }
+
+    @Benchmark
+    public String encodeCodec() {
+        return JsonUtils.classToMessage(broadcast);
+    }
+
+    @Benchmark
+    public Object commandLookupLegacy() {
+        return LegacyJsonUtils.getCommandFromClass(Broadcast.class);
+    }
+
+    @Benchmark
+    public Object commandLookupCodec() {
+        return JsonUtils.getCommandFromClass(Broadcast.class);
+    }
+}
@@ -0,0 +1,78 @@
+package src.benchmarks.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import shared.constants.ProtocolCommands;
+import shared.utils.JsonUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The message conversion as it was before the codec table in {@link JsonUtils}: the command of a class is found
+ * by streaming over the mapping, commands are resolved with {@link ProtocolCommands#valueOf(String)} and every
+ * message goes through the generic {@link ObjectMapper} methods. Only kept as the baseline for {@link CodecBenchmark}.
+ */
+public class LegacyJsonUtils {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Map<ProtocolCommands, Class<?>> commandToClassMapping = new HashMap<>();
+
+    static {
+        for (ProtocolCommands command : ProtocolCommands.values()) {
+            Class<?> clazz = JsonUtils.getClassFromCommand(command);
+            if (clazz != null) {
+                commandToClassMapping.put(command, clazz);
+            }
+        }
+    }
+
+    public static ProtocolCommands getCommandFromClass(Class<?> clazz) {
+        return commandToClassMapping.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(clazz))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Cannot find command for class " + clazz.getName()));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T messageToClass(String message) {
+        String commandStr;
+        String content;
+
+        int firstSpace = message.indexOf(' ');
+        if (firstSpace == -1) {
+            commandStr = message.trim();
+            content = "{}";
+        } else {
+            commandStr = message.substring(0, firstSpace).trim();
+            content = message.substring(firstSpace + 1).trim();
+        }
+
+        if (content.isBlank()) {
+            content = "{}";
+        }
+
+        ProtocolCommands command;
+        try {
+            command = ProtocolCommands.valueOf(commandStr);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown command: " + commandStr);
+        }
+
+        try {
+            return (T) objectMapper.readValue(content, commandToClassMapping.get(command));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to parse message content: " + e.getMessage());
+        }
+    }
+
+    public static String classToMessage(Object obj) {
+        ProtocolCommands command = getCommandFromClass(obj.getClass());
+
+        try {
+            return command.toString() + " " + objectMapper.writeValueAsString(obj);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package src.benchmarks.codec;
+
+import org.openjdk.jmh.annotations.*;
+import shared.constants.ProtocolCommands;
+import shared.utils.BinaryCodec;
+import shared.utils.JsonUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes every message of the protocol, one command per run, in the text format with {@link JsonUtils}
+ * and in the binary wire format with {@link BinaryCodec}. The messages are created by {@link MessageSamples}.
+ * Run with {@code -prof gc} (or {@link src.benchmarks.BenchmarkRunner}) to see the bytes allocated per operation
+ * next to the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+    @Param({
+            "JOINED", "READY", "ENTER", "ENTER_RESP", "BROADCAST_REQ", "BROADCAST_RESP", "BROADCAST", "PING", "PONG",
+            "PONG_ERROR", "BYE", "BYE_RESP", "HANGUP", "LEFT", "CLIENTS_REQ", "CLIENTS_RESP", "CLIENTS",
+            "PRIVATE_REQ", "PRIVATE_RESP", "PRIVATE", "RPS_START_REQ", "RPS_START_RESP", "RPS_START",
+            "RPS_CHOICE_REQ", "RPS_CHOICE_RESP", "RPS_END", "RPS_ERROR", "TRANSFER_REQ", "TRANSFER_RESP",
+            "TRANSFER_ACCEPT", "TRANSFER_ACCEPT_RESP", "TRANSFER_REJECT", "TRANSFER_REJECT_RESP",
+            "TRANSFER_ACCEPTED", "TRANSFER_REJECTED", "TRANSFER_CHECKSUM", "TRANSFER_FAILED", "TRANSFER_SUCCESS",
+            "FEATURE_REQ", "FEATURE_RESP", "PRESENCE"
+    })
+    public String command;
+
+    private Object message;
+    private byte[] textFrame;
+    private byte[] binaryFrame;
+    private int binaryOffset;
+
+    @Setup
+    public void setup() {
+        message = MessageSamples.sample(ProtocolCommands.valueOf(command));
+        textFrame = JsonUtils.classToMessage(message).getBytes(StandardCharsets.UTF_8);
+        binaryFrame = BinaryCodec.classToFrame(message);
+        // the decoder is handed the frame without its length prefix
+        binaryOffset = 1;
+        while (BinaryCodec.varIntLength(binaryFrame.length - binaryOffset) != binaryOffset) {
+            binaryOffset++;
+        }
+    }
+
+    @Benchmark
+    public Object decodeText() {
+        return JsonUtils.messageToClass(textFrame, 0, textFrame.length);
+    }
+
+    @Benchmark
+    public String encodeText() {
+        return JsonUtils.classToMessage(message);
+    }
+
+    @Benchmark
+    public Object decodeBinary() {
+        return BinaryCodec.frameToClass(binaryFrame, binaryOffset, binaryFrame.length - binaryOffset);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return BinaryCodec.classToFrame(message);
+    }
+}
@@ -0,0 +1,70 @@
+package src.benchmarks.codec;
+
+import shared.constants.ProtocolCommands;
+import shared.utils.JsonUtils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Creates a sample instance of the message record of a command, with realistic values for every component, so
+ * the benchmarks cover every message in {@code shared.messages.model} without listing them by hand.
+ */
+public class MessageSamples {
+    private MessageSamples() {}
+
+    /**
+     * Creates a sample message of a command.
+     * @param command the command, must have a message class
+     * @return the sample message
+     */
+    public static Object sample(ProtocolCommands command) {
+        Class<?> clazz = JsonUtils.getClassFromCommand(command);
+        if (clazz == null || !clazz.isRecord()) {
+            throw new IllegalArgumentException("No message record for " + command);
+        }
+
+        RecordComponent[] components = clazz.getRecordComponents();
+        Class<?>[] types = new Class<?>[components.length];
+        Object[] values = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            types[i] = components[i].getType();
+            values[i] = sampleValue(components[i].getName(), components[i].getGenericType());
+        }
+
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor(types);
+            return constructor.newInstance(values);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can not create a " + clazz.getSimpleName(), e);
+        }
+    }
+
+    private static Object sampleValue(String name, Type type) {
+        if (type == String.class) {
+            return switch (name) {
+                case "status" -> "ERROR";
+                case "message" -> "Hello everyone, how is it going?";
+                case "version" -> "1.6";
+                case "checksum" -> "9e107d9d372bb6826bd81d3542a419d6";
+                case "id", "uuid", "sessionId", "sessionUuid" -> "3b241101-e2bb-4255-8caf-4136c566a962";
+                default -> "sample_" + name;
+            };
+        }
+        if (type == Integer.class || type == int.class) {
+            return 5001;
+        }
+        if (type == double.class || type == Double.class) {
+            return 1_048_576.0;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return true;
+        }
+        if (type.getTypeName().equals("java.util.List<java.lang.String>")) {
+            return List.of("alice", "bob", "carol", "dave");
+        }
+        throw new IllegalArgumentException("No sample value for " + type.getTypeName() + " " + name);
+    }
+}
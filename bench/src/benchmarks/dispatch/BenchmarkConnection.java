@@ -0,0 +1,25 @@
+package src.benchmarks.dispatch;
+
+import shared.connection.Connection;
+
+import java.net.Socket;
+
+/**
+ * A connection without a socket that is always connected, so a {@link shared.messages.handling.MessageParser}
+ * can be fed bytes directly.
+ */
+public class BenchmarkConnection implements Connection {
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public Socket getSocket() {
+        return null;
+    }
+
+    @Override
+    public void closeConnection() {
+    }
+}
@@ -0,0 +1,58 @@
+package src.benchmarks.dispatch;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import shared.constants.ProtocolCommands;
+import shared.messages.handling.MessageHandler;
+import shared.messages.handling.MessageHandlerRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lookup of the handler of a message in a {@link MessageHandlerRegistry}, done for every incoming message.
+ * The registry holds a handler for every command and two filters like the server registry (rate limit, features).
+ * The score is per lookup, cycling through the first {@value #LOOKUPS} commands.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerRegistryBenchmark {
+    private static final int LOOKUPS = 32;
+    private static final ProtocolCommands[] COMMANDS = Arrays.copyOf(ProtocolCommands.values(), LOOKUPS);
+
+    private final Object message = new Object();
+    private MessageHandlerRegistry registry;
+
+    @Setup
+    public void setup() {
+        registry = new MessageHandlerRegistry();
+        MessageHandler<Object> handler = message -> { };
+        for (ProtocolCommands command : ProtocolCommands.values()) {
+            registry.registerHandler(command, handler);
+        }
+        registry.registerFilter((command, message) -> command != ProtocolCommands.UNKNOWN_COMMAND);
+        registry.registerFilter((command, message) -> message != null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void lookup(Blackhole blackhole) {
+        for (ProtocolCommands command : COMMANDS) {
+            blackhole.consume(registry.getHandler(command));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void acceptAndLookup(Blackhole blackhole) {
+        for (ProtocolCommands command : COMMANDS) {
+            if (registry.accept(command, message)) {
+                blackhole.consume(registry.getHandler(command));
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package src.benchmarks.dispatch;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import shared.constants.ProtocolCommands;
+import shared.messages.handling.MessageHandlerRegistry;
+import shared.messages.handling.MessageParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds a stream of client messages to a {@link MessageParser} in chunks of a fixed size, like the fragmented
+ * input of the {@code PacketBreakup} protocol tests: a chunk size of 1 hands over every byte on its own, the
+ * largest size hands over the whole stream at once. Covers framing, parsing and dispatching to the handlers.
+ * The score is per message, run with {@code -prof gc} to see the bytes allocated per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(MessageParserBenchmark.MESSAGES)
+public class MessageParserBenchmark {
+    static final int MESSAGES = 64;
+
+    @Param({"1", "7", "64", "8192"})
+    public int chunkSize;
+
+    private MessageParser parser;
+    private ByteBuffer[] chunks;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        MessageHandlerRegistry registry = new MessageHandlerRegistry();
+        registry.registerHandler(ProtocolCommands.ENTER, this::consume);
+        registry.registerHandler(ProtocolCommands.BROADCAST_REQ, this::consume);
+        registry.registerHandler(ProtocolCommands.PRIVATE_REQ, this::consume);
+        registry.registerHandler(ProtocolCommands.PONG, this::consume);
+        parser = new MessageParser(new BenchmarkConnection(), registry);
+
+        StringBuilder stream = new StringBuilder();
+        stream.append("ENTER {\"username\":\"myname\"}\r\n");
+        for (int i = 1; i < MESSAGES; i++) {
+            switch (i % 4) {
+                case 0 -> stream.append("PONG\r\n");
+                case 1, 2 -> stream.append("BROADCAST_REQ {\"message\":\"Hello everyone, message ").append(i).append("\"}\r\n");
+                default -> stream.append("PRIVATE_REQ {\"to\":\"user2\",\"message\":\"Hi there ").append(i).append("\"}\n");
+            }
+        }
+
+        byte[] bytes = stream.toString().getBytes(StandardCharsets.UTF_8);
+        int count = (bytes.length + chunkSize - 1) / chunkSize;
+        chunks = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            int offset = i * chunkSize;
+            chunks[i] = ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset)).slice();
+        }
+    }
+
+    private void consume(Object message) {
+        blackhole.consume(message);
+    }
+
+    @Benchmark
+    public void decode() {
+        for (ByteBuffer chunk : chunks) {
+            chunk.rewind();
+            parser.decode(chunk);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package src.benchmarks.fanout;
+
+import org.openjdk.jmh.annotations.*;
+import server.connection.ClientConnection;
+import server.connection.ClientRegistry;
+import server.errors.ClientException;
+import server.messages.handlers.BroadcastReqHandler;
+import shared.messages.model.client.BroadcastReq;
+import shared.messages.model.server.Joined;
+import shared.messages.model.server.Left;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fan-out of a message to every logged in user, the part of the server whose cost grows with the number of
+ * users. The {@link ClientRegistry} is filled with {@link ClientConnection}s on {@link InMemoryTransport}s.
+ * <ul>
+ *     <li>broadcast: a BROADCAST_REQ handled by the {@link BroadcastReqHandler}</li>
+ *     <li>joined: the JOINED loop of a login, the user itself is already logged in</li>
+ *     <li>left: the LEFT loop of the ByeHandler, without closing the connection afterwards</li>
+ * </ul>
+ * JOINED and LEFT call the registry, which sends them the way the PresenceBatcher does to clients without the
+ * PRESENCE feature; the handlers themselves would log users in and out.
+ * The score is per fan-out, the {@link Deliveries} counter reports the messages delivered per second, its inverse is
+ * the cost per recipient. Run with {@code -prof gc} to see the bytes allocated per fan-out.
+ * The outbound queues are drained on every signal, so the fork runs with small queues to fit 50k users in the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dserver.logLevels=MESSAGE=OFF,CUSTOM=OFF,CLIENT_USER_COUNT=OFF",
+        "-Dserver.logConsole=false", "-Dserver.outboundQueueCapacity=64"})
+public class FanOutBenchmark {
+    @Param({"10", "1000", "10000", "50000"})
+    public int users;
+
+    private ClientConnection sender;
+    private BroadcastReqHandler broadcastReqHandler;
+    private BroadcastReq broadcastReq;
+    private Joined joined;
+    private Left left;
+
+    /**
+     * Counts the messages delivered to the recipients, reported by JMH as a rate next to the score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Deliveries {
+        public long deliveries;
+    }
+
+    @Setup
+    public void setup() throws ClientException {
+        ClientRegistry registry = ClientRegistry.getInstance();
+        for (int i = 0; i < users; i++) {
+            ClientConnection connection = new ClientConnection(new InMemoryTransport(10_000 + i));
+            registry.logInClient(String.format("user%06d", i), connection);
+            if (i == 0) {
+                sender = connection;
+            }
+        }
+
+        broadcastReqHandler = new BroadcastReqHandler(sender);
+        broadcastReq = new BroadcastReq("Hello everyone, how is it going?");
+        joined = new Joined(sender.getUsername());
+        left = new Left(sender.getUsername());
+    }
+
+    @Benchmark
+    public void broadcast(Deliveries deliveries) {
+        broadcastReqHandler.handle(broadcastReq);
+        deliveries.deliveries += users - 1;
+    }
+
+    @Benchmark
+    public void joined(Deliveries deliveries) {
+        ClientRegistry.getInstance().broadcast(joined, sender);
+        deliveries.deliveries += users - 1;
+    }
+
+    @Benchmark
+    public void left(Deliveries deliveries) {
+        ClientRegistry.getInstance().broadcast(left, sender);
+        deliveries.deliveries += users - 1;
+    }
+}
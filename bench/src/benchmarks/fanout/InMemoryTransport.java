@@ -0,0 +1,96 @@
+package src.benchmarks.fanout;
+
+import server.connection.ClientTransport;
+import server.connection.OutboundFrame;
+import server.connection.OutboundQueue;
+import server.connection.WriteStats;
+import shared.connection.CompressionStats;
+import shared.constants.WireFormat;
+
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * A {@link ClientTransport} without a socket. Every signal drains the outbound queue right away, like a writer that
+ * always keeps up, and only counts the frames and bytes, so the benchmark measures the fan-out itself and no client
+ * ever becomes a slow consumer.
+ */
+public class InMemoryTransport implements ClientTransport {
+    private final Socket socket;
+    private final WriteStats writeStats = new WriteStats();
+    private OutboundQueue<OutboundFrame> outbound;
+    private boolean open = true;
+
+    /**
+     * @param port the port the client pretends to connect from, only used for addressing
+     */
+    public InMemoryTransport(int port) {
+        this.socket = new AddressOnlySocket(port);
+    }
+
+    @Override
+    public Socket getSocket() {
+        return socket;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void start(OutboundQueue<OutboundFrame> outbound) {
+        this.outbound = outbound;
+    }
+
+    @Override
+    public void signal() {
+        int messages = 0;
+        long bytes = 0;
+        OutboundFrame frame;
+        while ((frame = outbound.poll()) != null) {
+            messages++;
+            bytes += frame.getBytes(WireFormat.TEXT).length;
+        }
+        if (messages > 0) {
+            writeStats.recordFlush(messages, bytes);
+        }
+    }
+
+    @Override
+    public WriteStats getWriteStats() {
+        return writeStats;
+    }
+
+    @Override
+    public CompressionStats getCompressionStats() {
+        return new CompressionStats();
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    /**
+     * An unconnected socket that reports a loopback address and a port, which is all a
+     * {@link server.connection.ClientConnection} asks its socket for.
+     */
+    private static class AddressOnlySocket extends Socket {
+        private final int port;
+
+        AddressOnlySocket(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public InetAddress getInetAddress() {
+            return InetAddress.getLoopbackAddress();
+        }
+
+        @Override
+        public int getPort() {
+            return port;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package src.benchmarks.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the latencies and errors per {@link Metric}.
+ * <p>
+ * To correct for coordinated omission, a latency is the time from the intended start of an operation, the slot the
+ * schedule gave it, until its response arrived. A server that stalls for a second therefore shows up in every request
+ * that was due during that second, and not only in the one request the generator was waiting on. Operations that were
+ * due before the end of the warm-up are not recorded.
+ */
+class LatencyRecorder {
+    private final Map<Metric, LatencyHistogram> histograms = new EnumMap<>(Metric.class);
+    private final Map<Metric, LongAdder> errors = new EnumMap<>(Metric.class);
+    private volatile long recordFrom = Long.MIN_VALUE;
+
+    LatencyRecorder() {
+        for (Metric metric : Metric.values()) {
+            histograms.put(metric, new LatencyHistogram());
+            errors.put(metric, new LongAdder());
+        }
+    }
+
+    /**
+     * Ignores all operations that are due before a point in time, used to skip the warm-up.
+     * @param nanoTime the {@link System#nanoTime()} of the first operation that is recorded
+     */
+    void recordFrom(long nanoTime) {
+        recordFrom = nanoTime;
+    }
+
+    /**
+     * Records the latency of an operation until now.
+     * @param metric what was measured
+     * @param intendedStart the {@link System#nanoTime()} the operation was scheduled for
+     */
+    void record(Metric metric, long intendedStart) {
+        record(metric, intendedStart, System.nanoTime());
+    }
+
+    void record(Metric metric, long intendedStart, long end) {
+        if (intendedStart - recordFrom >= 0) {
+            histograms.get(metric).record(end - intendedStart);
+        }
+    }
+
+    /**
+     * Counts a failed operation, e.g. a response with status ERROR.
+     * @param metric what failed
+     * @param intendedStart the {@link System#nanoTime()} the operation was scheduled for
+     */
+    void error(Metric metric, long intendedStart) {
+        if (intendedStart - recordFrom >= 0) {
+            errors.get(metric).increment();
+        }
+    }
+
+    LatencyHistogram.Snapshot snapshot(Metric metric) {
+        return histograms.get(metric).snapshot();
+    }
+
+    long getErrors(Metric metric) {
+        return errors.get(metric).sum();
+    }
+}
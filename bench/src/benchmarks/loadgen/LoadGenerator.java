@@ -0,0 +1,455 @@
+package src.benchmarks.loadgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulates many users against a running server, to find out how many users a machine can serve. Opens a connection
+ * per user, logs them all in with ENTER and then issues a mix of broadcasts, private messages, CLIENTS_REQ, RPS games
+ * and file transfers at a fixed rate. Every connection answers PING with PONG, so the users stay connected however
+ * long the run takes.
+ * <p>
+ * The operations follow a fixed schedule and are sent whether or not earlier ones were answered, and their latency
+ * is measured from the time the schedule intended to send them (see {@link LatencyRecorder}). The report with the
+ * latency percentiles per {@link Metric} is printed and written to a file.
+ * <p>
+ * Usage: {@code LoadGenerator [--option value]...} with the options
+ * <ul>
+ *     <li>--host, --port, --file-port: the server, default 127.0.0.1, 1337 and 8080</li>
+ *     <li>--users: the number of connections, default 100</li>
+ *     <li>--rate: the operations per second of all users together, default 200</li>
+ *     <li>--duration, --warmup: the seconds that are measured and the seconds before that are not, default 60 and 10</li>
+ *     <li>--mix: the weights of the {@link Operation}s, default {@code BROADCAST=60,PRIVATE=30,CLIENTS=8,RPS=1,TRANSFER=1}</li>
+ *     <li>--message-size: the length of the broadcast and private messages, default 64</li>
+ *     <li>--transfer-size: the bytes of a file transfer, default 65536</li>
+ *     <li>--prefix: the start of the usernames, followed by _ and a number, default lg and 4 random characters</li>
+ *     <li>--report: the report file, default loadgen-report-&lt;date&gt;.txt</li>
+ * </ul>
+ * The server limits connections and requests per address, start it with higher limits, e.g.
+ * {@code -Dserver.maxConnectionsPerAddress=100000 -Dserver.rateLimits=} and {@code -Dserver.logConsole=false}.
+ */
+public class LoadGenerator {
+    static final long NOT_STAMPED = -1;
+    private static final String USAGE = "Usage: LoadGenerator [--host <host>] [--port <port>] [--file-port <port>] "
+            + "[--users <count>] [--rate <operations/s>] [--duration <s>] [--warmup <s>] [--mix <OPERATION=weight,...>] "
+            + "[--message-size <bytes>] [--transfer-size <bytes>] [--prefix <prefix>] [--report <file>]";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final int MAX_USERNAME_LENGTH = 14;
+    private static final int CONNECT_THREADS = 64;
+    private static final long LOGIN_TIMEOUT_MILLIS = 10_000;
+    private static final long DRAIN_NANOS = 10_000_000_000L;
+    private static final long PROGRESS_NANOS = 5_000_000_000L;
+
+    private final Options options;
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final AtomicLong awaitingResponse = new AtomicLong();
+    private final AtomicBoolean rpsRunning = new AtomicBoolean();
+    private final AtomicInteger transferCounter = new AtomicInteger();
+    private final long[] issued = new long[Operation.values().length];
+    private final long[] skipped = new long[Operation.values().length];
+    private final String stampPrefix;
+    private final String padding;
+    private final byte[] transferPayload;
+    private final String transferChecksum;
+    private SimulatedUser[] users;
+    private int failedLogins;
+
+    private LoadGenerator(Options options) {
+        this.options = options;
+        // identifies the messages of this run, another generator may send to the same server
+        this.stampPrefix = options.prefix + ":";
+        this.padding = "x".repeat(Math.max(0, options.messageSize - stampPrefix.length() - 20));
+        this.transferPayload = new byte[options.transferSize];
+        new Random().nextBytes(transferPayload);
+        this.transferChecksum = checksumOf(transferPayload);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        new LoadGenerator(options).run();
+    }
+
+    private void run() throws Exception {
+        login();
+        if (users.length < 2) {
+            System.err.println("Only " + users.length + " users logged in, at least 2 are needed");
+            closeUsers();
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        long measuredFrom = start + options.warmupSeconds * 1_000_000_000L;
+        long end = measuredFrom + options.durationSeconds * 1_000_000_000L;
+        recorder.recordFrom(measuredFrom);
+        System.out.printf("%d users logged in, running %.1f operations/s for %d s after %d s warm-up%n",
+                users.length, options.rate, options.durationSeconds, options.warmupSeconds);
+
+        schedule(start, measuredFrom, end);
+        awaitResponses();
+
+        String report = report();
+        closeUsers();
+        System.out.print(report);
+        Files.writeString(options.report.toPath(), report);
+        System.out.println("Report written to " + options.report.getAbsolutePath());
+    }
+
+    /**
+     * Connects and logs in all users, a few at a time.
+     */
+    private void login() throws InterruptedException {
+        List<SimulatedUser> loggedIn = new ArrayList<>(options.users);
+        List<Future<SimulatedUser>> futures = new ArrayList<>(options.users);
+        ExecutorService executor = Executors.newFixedThreadPool(CONNECT_THREADS);
+        for (int i = 0; i < options.users; i++) {
+            String username = options.prefix + "_" + i;
+            futures.add(executor.submit(() -> {
+                SimulatedUser user = new SimulatedUser(this, username);
+                if (!user.login(LOGIN_TIMEOUT_MILLIS)) {
+                    user.close();
+                    throw new IOException(username + " could not log in");
+                }
+                return user;
+            }));
+        }
+
+        String firstFailure = null;
+        for (Future<SimulatedUser> future : futures) {
+            try {
+                loggedIn.add(future.get());
+            } catch (Exception e) {
+                failedLogins++;
+                if (firstFailure == null) {
+                    firstFailure = e.getCause() != null ? e.getCause().toString() : e.toString();
+                }
+            }
+        }
+        executor.shutdown();
+
+        if (firstFailure != null) {
+            System.err.println(failedLogins + " users failed to log in, the first because of " + firstFailure);
+        }
+        users = loggedIn.toArray(new SimulatedUser[0]);
+    }
+
+    /**
+     * Issues the operations at the scheduled times. The schedule does not wait for responses and does not skip
+     * slots when the generator falls behind, the late operations are sent right away.
+     */
+    private void schedule(long start, long measuredFrom, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double interval = 1e9 / options.rate;
+        long nextProgress = start + PROGRESS_NANOS;
+
+        for (long i = 0; ; i++) {
+            long intendedStart = start + (long) (i * interval);
+            if (intendedStart - end >= 0) {
+                return;
+            }
+
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            recorder.record(Metric.SEND_LAG, intendedStart);
+
+            Operation operation = options.mix.pick(random);
+            boolean measured = intendedStart - measuredFrom >= 0;
+            if (issue(operation, intendedStart, random)) {
+                if (measured) {
+                    issued[operation.ordinal()]++;
+                }
+            } else if (measured) {
+                skipped[operation.ordinal()]++;
+            }
+
+            if (intendedStart - nextProgress >= 0) {
+                nextProgress += PROGRESS_NANOS;
+                System.out.printf("%4d s: %d operations sent, %d awaiting a response%n",
+                        (intendedStart - start) / 1_000_000_000L, i + 1, awaitingResponse.get());
+            }
+        }
+    }
+
+    /**
+     * Issues one operation.
+     * @return false if the operation was skipped, because the server already runs an RPS game or no two users
+     * are free for a transfer
+     */
+    private boolean issue(Operation operation, long intendedStart, ThreadLocalRandom random) {
+        int from = random.nextInt(users.length);
+        // any other user
+        SimulatedUser to = users[(from + 1 + random.nextInt(users.length - 1)) % users.length];
+
+        switch (operation) {
+            case BROADCAST -> users[from].broadcast(intendedStart);
+            case PRIVATE -> users[from].sendPrivate(to, intendedStart);
+            case CLIENTS -> users[from].requestClients(intendedStart);
+            case RPS -> {
+                if (!rpsRunning.compareAndSet(false, true)) {
+                    return false;
+                }
+                users[from].startRps(to, intendedStart);
+            }
+            case TRANSFER -> {
+                if (!users[from].reserveTransfer()) {
+                    return false;
+                }
+                if (!to.reserveTransfer()) {
+                    users[from].releaseTransfer();
+                    return false;
+                }
+                users[from].startTransfer(to, intendedStart);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits until every request got its response, at most {@link #DRAIN_NANOS}.
+     */
+    private void awaitResponses() {
+        long deadline = System.nanoTime() + DRAIN_NANOS;
+        while (awaitingResponse.get() > 0 && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(10_000_000L);
+        }
+    }
+
+    private void closeUsers() {
+        for (SimulatedUser user : users) {
+            user.close();
+        }
+    }
+
+    private String report() {
+        StringBuilder report = new StringBuilder();
+        long operations = 0;
+        for (long count : issued) {
+            operations += count;
+        }
+
+        report.append(String.format("Load generator report, %s%n", LocalDateTime.now()));
+        report.append(String.format("server:     %s:%d, file transfers on %d%n", options.host, options.port, options.filePort));
+        report.append(String.format("users:      %d logged in, %d failed%n", users.length, failedLogins));
+        report.append(String.format("schedule:   %.1f operations/s for %d s after %d s warm-up, mix %s%n",
+                options.rate, options.durationSeconds, options.warmupSeconds, options.mix));
+        report.append(String.format("payloads:   messages of %d characters, transfers of %d bytes%n",
+                options.messageSize, options.transferSize));
+        report.append(String.format("issued:     %d operations (%.1f/s)", operations, operations / (double) options.durationSeconds));
+        for (Operation operation : Operation.values()) {
+            if (issued[operation.ordinal()] > 0 || skipped[operation.ordinal()] > 0) {
+                report.append(String.format(", %s %d", operation, issued[operation.ordinal()]));
+                if (skipped[operation.ordinal()] > 0) {
+                    report.append(String.format(" (%d skipped)", skipped[operation.ordinal()]));
+                }
+            }
+        }
+        report.append(String.format("%n%n"));
+
+        report.append(String.format("Latency in ms from the intended start, errors are responses with status ERROR and "
+                + "lost requests got no response%n"));
+        report.append(String.format("%-16s %9s %7s %6s %9s", "metric", "count", "errors", "lost", "mean"));
+        for (double percentile : PERCENTILES) {
+            report.append(String.format(" %9s", "p" + formatPercentile(percentile)));
+        }
+        report.append(String.format(" %9s%n", "max"));
+
+        List<Metric> reported = new ArrayList<>();
+        for (Metric metric : Metric.values()) {
+            LatencyHistogram.Snapshot snapshot = recorder.snapshot(metric);
+            long errors = recorder.getErrors(metric);
+            long lost = lostRequests(metric);
+            if (snapshot.count() == 0 && errors == 0 && lost == 0) {
+                continue;
+            }
+
+            reported.add(metric);
+            report.append(String.format("%-16s %9d %7d %6d %9.3f", metric, snapshot.count(), errors, lost, snapshot.mean() / 1e6));
+            for (double percentile : PERCENTILES) {
+                report.append(String.format(" %9.3f", snapshot.percentile(percentile) / 1e6));
+            }
+            report.append(String.format(" %9.3f%n", snapshot.max() / 1e6));
+        }
+
+        report.append(String.format("%n"));
+        for (Metric metric : reported) {
+            report.append(String.format("%-16s %s%n", metric, metric.getDescription()));
+        }
+        return report.toString();
+    }
+
+    private long lostRequests(Metric metric) {
+        long lost = 0;
+        for (SimulatedUser user : users) {
+            lost += user.getPending(metric);
+        }
+        return lost;
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    LatencyRecorder getRecorder() {
+        return recorder;
+    }
+
+    String getHost() {
+        return options.host;
+    }
+
+    int getPort() {
+        return options.port;
+    }
+
+    int getFilePort() {
+        return options.filePort;
+    }
+
+    void requestSent() {
+        awaitingResponse.incrementAndGet();
+    }
+
+    void responseReceived() {
+        awaitingResponse.decrementAndGet();
+    }
+
+    void rpsFinished() {
+        rpsRunning.set(false);
+    }
+
+    /**
+     * Creates the text of a broadcast or private message that carries its intended start, so the recipients can
+     * measure the delivery. Every user runs in this JVM, so the {@link System#nanoTime()} of the sender is valid.
+     * @param intendedStart the {@link System#nanoTime()} the message was scheduled for
+     * @return the message text
+     */
+    String stampedMessage(long intendedStart) {
+        return stampPrefix + intendedStart + " " + padding;
+    }
+
+    /**
+     * Reads the intended start of a message created by {@link #stampedMessage(long)}.
+     * @param message the text of a received message
+     * @return the intended start or {@link #NOT_STAMPED} if the message was not sent by this generator
+     */
+    long stampOf(String message) {
+        if (message == null || !message.startsWith(stampPrefix)) {
+            return NOT_STAMPED;
+        }
+        int end = message.indexOf(' ', stampPrefix.length());
+        try {
+            return Long.parseLong(message, stampPrefix.length(), end == -1 ? message.length() : end, 10);
+        } catch (NumberFormatException e) {
+            return NOT_STAMPED;
+        }
+    }
+
+    String nextFilename() {
+        return options.prefix + "-" + transferCounter.incrementAndGet() + ".bin";
+    }
+
+    byte[] getTransferPayload() {
+        return transferPayload;
+    }
+
+    String getTransferChecksum() {
+        return transferChecksum;
+    }
+
+    double getTransferSizeMB() {
+        return transferPayload.length / (1024.0 * 1024.0);
+    }
+
+    /**
+     * Calculates the checksum the same way as {@link shared.utils.FileTransferUtils}.
+     */
+    private static String checksumOf(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The command line options.
+     */
+    private static final class Options {
+        private String host = "127.0.0.1";
+        private int port = 1337;
+        private int filePort = 8080;
+        private int users = 100;
+        private double rate = 200;
+        private int durationSeconds = 60;
+        private int warmupSeconds = 10;
+        private Operation.Mix mix = Operation.Mix.parse("BROADCAST=60,PRIVATE=30,CLIENTS=8,RPS=1,TRANSFER=1");
+        private int messageSize = 64;
+        private int transferSize = 64 * 1024;
+        private String prefix = "lg" + Integer.toString(ThreadLocalRandom.current().nextInt(36 * 36 * 36, 36 * 36 * 36 * 36), 36);
+        private File report = new File("loadgen-report-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt");
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            if (args.length % 2 != 0) {
+                throw new IllegalArgumentException("Every option needs a value");
+            }
+
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--host" -> options.host = value;
+                    case "--port" -> options.port = Integer.parseInt(value);
+                    case "--file-port" -> options.filePort = Integer.parseInt(value);
+                    case "--users" -> options.users = Integer.parseInt(value);
+                    case "--rate" -> options.rate = Double.parseDouble(value);
+                    case "--duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "--warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "--mix" -> options.mix = Operation.Mix.parse(value);
+                    case "--message-size" -> options.messageSize = Integer.parseInt(value);
+                    case "--transfer-size" -> options.transferSize = Integer.parseInt(value);
+                    case "--prefix" -> options.prefix = value;
+                    case "--report" -> options.report = new File(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+
+            if (options.users < 2) {
+                throw new IllegalArgumentException("At least 2 users are needed");
+            }
+            if (options.rate <= 0 || options.durationSeconds <= 0 || options.warmupSeconds < 0) {
+                throw new IllegalArgumentException("The rate and duration must be positive");
+            }
+            if (options.prefix.length() + 1 + String.valueOf(options.users - 1).length() > MAX_USERNAME_LENGTH) {
+                throw new IllegalArgumentException("The usernames would be longer than " + MAX_USERNAME_LENGTH + " characters");
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package src.benchmarks.loadgen;
+
+/**
+ * What the {@link LoadGenerator} measures. Apart from {@link #ENTER} every latency is measured from the time the
+ * request should have been sent according to the schedule, not from the time it was sent.
+ */
+enum Metric {
+    ENTER("ENTER to ENTER_RESP, during the login"),
+    BROADCAST_REQ("BROADCAST_REQ to BROADCAST_RESP"),
+    BROADCAST("BROADCAST_REQ to the BROADCAST at every other user"),
+    PRIVATE_REQ("PRIVATE_REQ to PRIVATE_RESP"),
+    PRIVATE("PRIVATE_REQ to the PRIVATE at the recipient"),
+    CLIENTS_REQ("CLIENTS_REQ to CLIENTS"),
+    RPS_START_REQ("RPS_START_REQ to RPS_START_RESP"),
+    RPS_GAME("RPS_START_REQ to RPS_END at the player who started, both players choose as soon as the game started"),
+    TRANSFER_REQ("TRANSFER_REQ to TRANSFER_RESP"),
+    TRANSFER_ACCEPT("TRANSFER_ACCEPT to TRANSFER_ACCEPT_RESP, sent once the request arrived"),
+    TRANSFER("TRANSFER_REQ to TRANSFER_SUCCESS at the sender, including the upload"),
+    SEND_LAG("how late the generator sent a scheduled request");
+
+    private final String description;
+
+    Metric(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
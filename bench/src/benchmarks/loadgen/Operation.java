@@ -0,0 +1,101 @@
+package src.benchmarks.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * The operations the {@link LoadGenerator} issues, picked at random by their weight in the mix.
+ */
+enum Operation {
+    /**
+     * A BROADCAST_REQ of a random user.
+     */
+    BROADCAST,
+    /**
+     * A PRIVATE_REQ from a random user to another one.
+     */
+    PRIVATE,
+    /**
+     * A CLIENTS_REQ of a random user.
+     */
+    CLIENTS,
+    /**
+     * A game of rock paper scissors between two random users. The server only runs one game at a time, so the
+     * operation is skipped while the previous game is still running.
+     */
+    RPS,
+    /**
+     * A file transfer between two random users that are not transferring already.
+     */
+    TRANSFER;
+
+    /**
+     * The weights of the operations, parsed from a list like {@code BROADCAST=60,PRIVATE=30,CLIENTS=8,RPS=1,TRANSFER=1}.
+     */
+    static final class Mix {
+        private final Map<Operation, Integer> weights;
+        private final Operation[] operations;
+        private final int[] cumulativeWeights;
+
+        private Mix(Map<Operation, Integer> weights) {
+            this.weights = weights;
+            this.operations = weights.keySet().toArray(new Operation[0]);
+            this.cumulativeWeights = new int[operations.length];
+            int total = 0;
+            for (int i = 0; i < operations.length; i++) {
+                total += weights.get(operations[i]);
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        static Mix parse(String mix) {
+            Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+            for (String entry : mix.split(",")) {
+                if (entry.isBlank()) {
+                    continue;
+                }
+
+                String[] parts = entry.trim().split("=");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid mix entry: " + entry);
+                }
+
+                int weight = Integer.parseInt(parts[1].trim());
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Negative weight in mix entry: " + entry);
+                }
+                if (weight > 0) {
+                    weights.put(Operation.valueOf(parts[0].trim()), weight);
+                }
+            }
+
+            if (weights.isEmpty()) {
+                throw new IllegalArgumentException("The mix has no operation with a positive weight");
+            }
+            return new Mix(weights);
+        }
+
+        Operation pick(RandomGenerator random) {
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (value < cumulativeWeights[i]) {
+                    return operations[i];
+                }
+            }
+            return operations[operations.length - 1];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            weights.forEach((operation, weight) -> {
+                if (!builder.isEmpty()) {
+                    builder.append(',');
+                }
+                builder.append(operation).append('=').append(weight);
+            });
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package src.benchmarks.loadgen;
+
+import shared.constants.ProtocolCommands;
+import shared.messages.model.client.BroadcastReq;
+import shared.messages.model.client.ClientsReq;
+import shared.messages.model.client.Enter;
+import shared.messages.model.client.Pong;
+import shared.messages.model.client.PrivateReq;
+import shared.messages.model.client.RPSChoiceReq;
+import shared.messages.model.client.RPSStartReq;
+import shared.messages.model.client.TransferAccept;
+import shared.messages.model.client.TransferChecksum;
+import shared.messages.model.client.TransferReq;
+import shared.messages.model.server.Broadcast;
+import shared.messages.model.server.BroadcastResp;
+import shared.messages.model.server.ClientsResp;
+import shared.messages.model.server.EnterResp;
+import shared.messages.model.server.Private;
+import shared.messages.model.server.PrivateResp;
+import shared.messages.model.server.RPSStartResp;
+import shared.messages.model.server.TransferAcceptResp;
+import shared.messages.model.server.TransferAccepted;
+import shared.messages.model.server.TransferResp;
+import shared.utils.JsonUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One connection of the {@link LoadGenerator}, logged in as its own user. Requests are sent by the scheduler of the
+ * generator, everything the server sends is handled by a virtual thread per user that answers PING with PONG, matches
+ * responses to the requests waiting for them and plays its part in RPS games and file transfers.
+ * <p>
+ * The server answers the requests of a connection in order, so the requests waiting for the same response are kept
+ * in a queue per {@link Metric}, holding their intended start times.
+ */
+class SimulatedUser {
+    private static final List<String> RPS_CHOICES = List.of("rock", "paper", "scissors");
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final LoadGenerator generator;
+    private final LatencyRecorder recorder;
+    private final String username;
+    private final Socket socket;
+    private final BufferedReader in;
+    private final OutputStream out;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private final Map<Metric, ArrayDeque<Long>> pending = new EnumMap<>(Metric.class);
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final AtomicBoolean transferring = new AtomicBoolean();
+    private volatile boolean loggedIn;
+    private volatile boolean closed;
+    // the intended start of the game or transfer this user started, NONE if it did not start one
+    private final AtomicLong rpsStart = new AtomicLong(NONE);
+    private final AtomicLong transferStart = new AtomicLong(NONE);
+    private volatile SimulatedUser transferReceiver;
+
+    SimulatedUser(LoadGenerator generator, String username) throws IOException {
+        this.generator = generator;
+        this.recorder = generator.getRecorder();
+        this.username = username;
+        this.socket = new Socket(generator.getHost(), generator.getPort());
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = socket.getOutputStream();
+        for (Metric metric : Metric.values()) {
+            pending.put(metric, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Waits for READY, starts reading the messages of the server and logs in with ENTER.
+     * @param timeoutMillis how long to wait for ENTER_RESP
+     * @return true if the user is logged in
+     * @throws IOException if the server did not send READY
+     */
+    boolean login(long timeoutMillis) throws IOException, InterruptedException {
+        String ready = in.readLine();
+        if (ready == null || !ready.startsWith(ProtocolCommands.READY.name())) {
+            throw new IOException("Expected READY but received " + ready);
+        }
+
+        Thread.ofVirtual().name("loadgen-" + username).start(this::read);
+        send(Metric.ENTER, System.nanoTime(), new Enter(username));
+        return entered.await(timeoutMillis, TimeUnit.MILLISECONDS) && loggedIn;
+    }
+
+    void broadcast(long intendedStart) {
+        send(Metric.BROADCAST_REQ, intendedStart, new BroadcastReq(generator.stampedMessage(intendedStart)));
+    }
+
+    void sendPrivate(SimulatedUser recipient, long intendedStart) {
+        send(Metric.PRIVATE_REQ, intendedStart, new PrivateReq(recipient.username, generator.stampedMessage(intendedStart)));
+    }
+
+    void requestClients(long intendedStart) {
+        send(Metric.CLIENTS_REQ, intendedStart, new ClientsReq());
+    }
+
+    /**
+     * Starts a game against another user. The generator must only call this if no game is running, the game is
+     * finished with {@link LoadGenerator#rpsFinished()}.
+     */
+    void startRps(SimulatedUser opponent, long intendedStart) {
+        rpsStart.set(intendedStart);
+        if (!send(Metric.RPS_START_REQ, intendedStart, new RPSStartReq(opponent.username))) {
+            finishRps(false);
+        }
+    }
+
+    /**
+     * Reserves the user for a transfer, a user takes part in one transfer at a time.
+     * @return true if the user was not transferring
+     */
+    boolean reserveTransfer() {
+        return transferring.compareAndSet(false, true);
+    }
+
+    void releaseTransfer() {
+        transferring.set(false);
+    }
+
+    /**
+     * Sends a file to another user, both users must be reserved.
+     */
+    void startTransfer(SimulatedUser receiver, long intendedStart) {
+        transferReceiver = receiver;
+        transferStart.set(intendedStart);
+        TransferReq transferReq = new TransferReq(receiver.username, generator.nextFilename(),
+                generator.getTransferSizeMB(), generator.getTransferChecksum(), null);
+        if (!send(Metric.TRANSFER_REQ, intendedStart, transferReq)) {
+            finishTransfer(false);
+        }
+    }
+
+    /**
+     * Get the number of requests that are still waiting for their response.
+     */
+    int getPending(Metric metric) {
+        pendingLock.lock();
+        try {
+            return pending.get(metric).size();
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+        finishRps(false);
+        finishTransfer(false);
+    }
+
+    private void read() {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                handle(line);
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println(username + " lost the connection: " + e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            System.err.println(username + " failed to handle a message: " + e);
+        } finally {
+            close();
+            entered.countDown();
+        }
+    }
+
+    private void handle(String line) {
+        int space = line.indexOf(' ');
+        ProtocolCommands command;
+        try {
+            command = ProtocolCommands.valueOf(space == -1 ? line : line.substring(0, space));
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        switch (command) {
+            case PING -> write(new Pong());
+            case ENTER_RESP -> {
+                EnterResp enterResp = JsonUtils.messageToClass(line);
+                loggedIn = isOk(enterResp.status());
+                complete(Metric.ENTER, loggedIn);
+                entered.countDown();
+            }
+            case BROADCAST_RESP -> complete(Metric.BROADCAST_REQ, isOk(JsonUtils.<BroadcastResp>messageToClass(line).status()));
+            case BROADCAST -> delivered(Metric.BROADCAST, JsonUtils.<Broadcast>messageToClass(line).message());
+            case PRIVATE_RESP -> complete(Metric.PRIVATE_REQ, isOk(JsonUtils.<PrivateResp>messageToClass(line).status()));
+            case PRIVATE -> delivered(Metric.PRIVATE, JsonUtils.<Private>messageToClass(line).message());
+            case CLIENTS -> complete(Metric.CLIENTS_REQ, true);
+            case CLIENTS_RESP -> complete(Metric.CLIENTS_REQ, isOk(JsonUtils.<ClientsResp>messageToClass(line).status()));
+            case RPS_START_RESP -> {
+                boolean started = isOk(JsonUtils.<RPSStartResp>messageToClass(line).status());
+                complete(Metric.RPS_START_REQ, started);
+                if (started) {
+                    choose();
+                } else {
+                    finishRps(false);
+                }
+            }
+            case RPS_START -> choose();
+            case RPS_CHOICE_RESP -> {
+                // only sent for an error, also when a player did not choose in time, the game is over then
+                finishRps(false);
+            }
+            case RPS_END -> finishRps(true);
+            case RPS_ERROR -> finishRps(false);
+            case TRANSFER_REQ -> {
+                TransferReq transferReq = JsonUtils.messageToClass(line);
+                send(Metric.TRANSFER_ACCEPT, System.nanoTime(), new TransferAccept(transferReq.sessionId()));
+            }
+            case TRANSFER_RESP -> {
+                boolean requested = isOk(JsonUtils.<TransferResp>messageToClass(line).status());
+                complete(Metric.TRANSFER_REQ, requested);
+                if (!requested) {
+                    finishTransfer(false);
+                }
+            }
+            case TRANSFER_ACCEPT_RESP -> complete(Metric.TRANSFER_ACCEPT, isOk(JsonUtils.<TransferAcceptResp>messageToClass(line).status()));
+            case TRANSFER_ACCEPTED -> {
+                String uuid = JsonUtils.<TransferAccepted>messageToClass(line).uuid();
+                Thread.ofVirtual().name("loadgen-transfer-" + username).start(() -> transferFile(uuid));
+            }
+            case TRANSFER_SUCCESS -> finishTransfer(true);
+            case TRANSFER_FAILED -> finishTransfer(false);
+            case HANGUP -> close();
+            default -> {
+                // JOINED, LEFT and the like are not measured
+            }
+        }
+    }
+
+    private static boolean isOk(String status) {
+        return "OK".equalsIgnoreCase(status);
+    }
+
+    /**
+     * Sends a request that waits for a response.
+     * @return false if the connection failed, the request is counted as an error then
+     */
+    private boolean send(Metric metric, long intendedStart, Object message) {
+        pendingLock.lock();
+        try {
+            pending.get(metric).addLast(intendedStart);
+        } finally {
+            pendingLock.unlock();
+        }
+        generator.requestSent();
+
+        if (write(message)) {
+            return true;
+        }
+
+        pendingLock.lock();
+        try {
+            pending.get(metric).removeLastOccurrence(intendedStart);
+        } finally {
+            pendingLock.unlock();
+        }
+        generator.responseReceived();
+        recorder.error(metric, intendedStart);
+        return false;
+    }
+
+    private boolean write(Object message) {
+        if (closed) {
+            return false;
+        }
+
+        byte[] line = (JsonUtils.classToMessage(message) + "\n").getBytes(StandardCharsets.UTF_8);
+        writeLock.lock();
+        try {
+            out.write(line);
+            return true;
+        } catch (IOException e) {
+            close();
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Records the response to the oldest request that waits for it.
+     */
+    private void complete(Metric metric, boolean ok) {
+        Long intendedStart;
+        pendingLock.lock();
+        try {
+            intendedStart = pending.get(metric).pollFirst();
+        } finally {
+            pendingLock.unlock();
+        }
+        if (intendedStart == null) {
+            // e.g. the timeout of a transfer request that was answered already
+            return;
+        }
+
+        generator.responseReceived();
+        if (ok) {
+            recorder.record(metric, intendedStart);
+        } else {
+            recorder.error(metric, intendedStart);
+        }
+    }
+
+    /**
+     * Records the delivery of a message sent by the generator, messages of other clients are ignored.
+     */
+    private void delivered(Metric metric, String message) {
+        long intendedStart = generator.stampOf(message);
+        if (intendedStart != LoadGenerator.NOT_STAMPED) {
+            recorder.record(metric, intendedStart);
+        }
+    }
+
+    /**
+     * Sends the choice of this player, the server answers only once both players chose, with RPS_END.
+     */
+    private void choose() {
+        write(new RPSChoiceReq(RPS_CHOICES.get(ThreadLocalRandom.current().nextInt(RPS_CHOICES.size()))));
+    }
+
+    /**
+     * Ends the game this user started, nothing happens for the opponent or if the game ended already.
+     */
+    private void finishRps(boolean ended) {
+        long start = rpsStart.getAndSet(NONE);
+        if (start == NONE) {
+            return;
+        }
+
+        if (ended) {
+            recorder.record(Metric.RPS_GAME, start);
+        } else {
+            recorder.error(Metric.RPS_GAME, start);
+        }
+        generator.rpsFinished();
+    }
+
+    /**
+     * Ends the transfer this user sent and releases both users, nothing happens for the receiver.
+     */
+    private void finishTransfer(boolean succeeded) {
+        long start = transferStart.getAndSet(NONE);
+        if (start == NONE) {
+            return;
+        }
+
+        if (succeeded) {
+            recorder.record(Metric.TRANSFER, start);
+        } else {
+            recorder.error(Metric.TRANSFER, start);
+        }
+        SimulatedUser receiver = transferReceiver;
+        transferReceiver = null;
+        if (receiver != null) {
+            receiver.releaseTransfer();
+        }
+        releaseTransfer();
+    }
+
+    /**
+     * Connects to the file transfer port like the client does: the session UUID with 's' appended for the sender
+     * or 'r' for the receiver. The sender uploads the payload, the receiver downloads it and sends its checksum.
+     */
+    private void transferFile(String uuid) {
+        boolean sender = uuid.endsWith("s");
+        try (Socket transferSocket = new Socket(generator.getHost(), generator.getFilePort())) {
+            OutputStream transferOut = transferSocket.getOutputStream();
+            transferOut.write(uuid.getBytes(StandardCharsets.US_ASCII));
+
+            if (sender) {
+                transferOut.write(generator.getTransferPayload());
+                transferSocket.shutdownOutput();
+                // the server closes the connection once the receiver has all bytes
+                transferSocket.getInputStream().transferTo(OutputStream.nullOutputStream());
+                return;
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (DigestInputStream download = new DigestInputStream(transferSocket.getInputStream(), digest)) {
+                download.transferTo(OutputStream.nullOutputStream());
+            }
+            String sessionUuid = uuid.substring(0, uuid.length() - 1);
+            write(new TransferChecksum(sessionUuid, HexFormat.of().formatHex(digest.digest())));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            System.err.println(username + " failed to transfer a file: " + e.getMessage());
+            if (sender) {
+                finishTransfer(false);
+            }
+        }
+    }
+}
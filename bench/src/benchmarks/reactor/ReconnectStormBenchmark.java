@@ -0,0 +1,117 @@
+package src.benchmarks.reactor;
+
+import shared.messages.model.client.Enter;
+import shared.messages.model.server.EnterResp;
+import shared.utils.JsonUtils;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates a reconnect storm against a running server: a burst of clients connect at the same time,
+ * wait for READY and log in with ENTER. Reports the accept rate (connections that reached READY per second)
+ * and the ENTER to ENTER_RESP latency percentiles.
+ * <p>
+ * Start the server with {@code -Dserver.executionMode=EVENT_LOOP} and vary {@code -Dserver.acceptorThreads}
+ * and {@code -Dserver.eventLoopThreads} (and the cores given to the JVM) to compare the reactor layouts.
+ * <p>
+ * Usage: {@code ReconnectStormBenchmark [host] [port] [connections] [concurrency]}
+ */
+public class ReconnectStormBenchmark {
+    private static final AtomicInteger userCounter = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 1337;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+
+        List<Socket> sockets = new ArrayList<>(connections);
+        long[] enterLatencies = new long[connections];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> futures = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                try {
+                    start.await();
+                    Socket socket = new Socket(host, port);
+                    synchronized (sockets) {
+                        sockets.add(socket);
+                    }
+                    enterLatencies[index] = connectAndEnter(socket);
+                } catch (Exception e) {
+                    enterLatencies[index] = -1;
+                    failures.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        executor.shutdown();
+
+        long[] successful = Arrays.stream(enterLatencies).filter(latency -> latency >= 0).sorted().toArray();
+        System.out.printf("connections: %d (failed %d) in %.1f ms%n", connections, failures.get(), elapsedNanos / 1e6);
+        System.out.printf("accept rate: %.0f connections/s%n", successful.length / (elapsedNanos / 1e9));
+        System.out.printf("ENTER latency p50: %.2f ms, p99: %.2f ms, p99.9: %.2f ms, max: %.2f ms%n",
+                percentile(successful, 50) / 1e6, percentile(successful, 99) / 1e6,
+                percentile(successful, 99.9) / 1e6, percentile(successful, 100) / 1e6);
+
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Waits for READY, logs in with a unique username and measures the time until ENTER_RESP arrives.
+     * @return the ENTER latency in nanoseconds
+     */
+    private static long connectAndEnter(Socket socket) throws Exception {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+
+        in.readLine(); // READY
+
+        long sent = System.nanoTime();
+        out.println(JsonUtils.classToMessage(new Enter("storm_" + userCounter.incrementAndGet())));
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith("ENTER_RESP")) {
+                EnterResp enterResp = JsonUtils.messageToClass(line);
+                if (!"OK".equals(enterResp.status())) {
+                    throw new IllegalStateException("Login failed with code " + enterResp.code());
+                }
+                return System.nanoTime() - sent;
+            }
+        }
+        throw new IllegalStateException("Connection closed before ENTER_RESP");
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
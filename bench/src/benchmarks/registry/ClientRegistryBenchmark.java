@@ -0,0 +1,115 @@
+package src.benchmarks.registry;
+
+import org.openjdk.jmh.annotations.*;
+import server.connection.ClientConnection;
+import server.connection.ClientRegistry;
+import server.errors.ClientException;
+import src.benchmarks.fanout.InMemoryTransport;
+
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@link ClientRegistry} under contention: many threads logging in and out and looking up users while the
+ * registry holds a large number of logged in users.
+ * <ul>
+ *     <li>loginLogout: a client is added, logged in and removed again, like a connection that sends ENTER and
+ *     disconnects. Every thread uses its own client and username.</li>
+ *     <li>lookupByUsername: the lookup of PRIVATE_REQ, RPS and transfer handlers</li>
+ *     <li>lookupBySocket: the username of a socket</li>
+ *     <li>mixed: one thread logging in and out while the other threads look up users</li>
+ * </ul>
+ * Runs with 8 threads, change it with {@code -t}. The cost of an operation must not grow with the number of users,
+ * compare the scores of the {@code users} parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = {"-Dserver.logLevels=MESSAGE=OFF,CUSTOM=OFF,CLIENT_USER_COUNT=OFF",
+        "-Dserver.logConsole=false", "-Dserver.outboundQueueCapacity=64"})
+public class ClientRegistryBenchmark {
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Param({"1000", "50000"})
+    public int users;
+
+    private String[] usernames;
+    private Socket[] sockets;
+
+    /**
+     * The client of a thread and its position in the lookups.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private ClientConnection client;
+        private String username;
+        private int next;
+
+        @Setup
+        public void setup() {
+            int thread = threadCounter.incrementAndGet();
+            client = new ClientConnection(new InMemoryTransport(1_000 + thread));
+            username = "bench_" + thread;
+            next = thread * 7919;
+        }
+
+        /**
+         * Get the next index of the lookups, the threads start at different users.
+         */
+        int next(int users) {
+            next = (next + 7919) % users;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setup() throws ClientException {
+        ClientRegistry registry = ClientRegistry.getInstance();
+        usernames = new String[users];
+        sockets = new Socket[users];
+        for (int i = 0; i < users; i++) {
+            ClientConnection connection = new ClientConnection(new InMemoryTransport(10_000 + i));
+            usernames[i] = String.format("user%06d", i);
+            sockets[i] = connection.getSocket();
+            registry.addClient(connection);
+            registry.logInClient(usernames[i], connection);
+        }
+    }
+
+    @Benchmark
+    public ClientConnection loginLogout(ThreadState state) throws ClientException {
+        ClientRegistry registry = ClientRegistry.getInstance();
+        registry.addClient(state.client);
+        registry.logInClient(state.username, state.client);
+        registry.removeClient(state.client);
+        return state.client;
+    }
+
+    @Benchmark
+    public ClientConnection lookupByUsername(ThreadState state) {
+        return ClientRegistry.getInstance().getClientByUsername(usernames[state.next(users)]);
+    }
+
+    @Benchmark
+    public String lookupBySocket(ThreadState state) {
+        return ClientRegistry.getInstance().getUsernameBySocket(sockets[state.next(users)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public ClientConnection mixedLoginLogout(ThreadState state) throws ClientException {
+        return loginLogout(state);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public ClientConnection mixedLookup(ThreadState state) {
+        return lookupByUsername(state);
+    }
+}
@@ -0,0 +1,68 @@
+package src.benchmarks.registry;
+
+import org.openjdk.jmh.annotations.*;
+import server.connection.ClientConnection;
+import server.connection.ClientRegistry;
+import server.errors.ClientException;
+import server.messages.handlers.ClientsReqHandler;
+import shared.messages.model.client.ClientsReq;
+import shared.messages.model.server.Clients;
+import src.benchmarks.fanout.InMemoryTransport;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeated CLIENTS_REQ while no user logs in or out, with 10 up to 50k logged in users.
+ * <ul>
+ *     <li>clientsReq: the {@link ClientsReqHandler}, which cuts the requester out of the cached CLIENTS line</li>
+ *     <li>serializeEveryRequest: the list built and serialized for every request, like the handler did before</li>
+ * </ul>
+ * The response has an entry per user, so the cached response still costs a copy of its bytes, but no
+ * serialization; compare how both scores fall with the number of users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dserver.logLevels=MESSAGE=OFF,CUSTOM=OFF,CLIENT_USER_COUNT=OFF",
+        "-Dserver.logConsole=false", "-Dserver.outboundQueueCapacity=64"})
+public class ClientsReqBenchmark {
+    @Param({"10", "1000", "10000", "50000"})
+    public int users;
+
+    private ClientConnection requester;
+    private ClientsReqHandler handler;
+    private ClientsReq clientsReq;
+
+    @Setup
+    public void setup() throws ClientException {
+        ClientRegistry registry = ClientRegistry.getInstance();
+        for (int i = 0; i < users; i++) {
+            ClientConnection connection = new ClientConnection(new InMemoryTransport(10_000 + i));
+            registry.logInClient(String.format("user%06d", i), connection);
+            if (i == users / 2) {
+                requester = connection;
+            }
+        }
+
+        handler = new ClientsReqHandler(requester);
+        clientsReq = new ClientsReq();
+    }
+
+    @Benchmark
+    public void clientsReq() {
+        handler.handle(clientsReq);
+    }
+
+    @Benchmark
+    public void serializeEveryRequest() {
+        requester.sendMessage(new Clients(Arrays.stream(ClientRegistry.getInstance().getLoggedInSnapshot())
+                .filter(connection -> connection != requester)
+                .map(ClientConnection::getUsername)
+                .filter(Objects::nonNull)
+                .toList()));
+    }
+}
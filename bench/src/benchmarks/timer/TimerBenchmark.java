@@ -0,0 +1,95 @@
+package src.benchmarks.timer;
+
+import org.openjdk.jmh.annotations.*;
+import server.timeout.HashedWheelTimer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 100k timeouts pending at the same time, like the heartbeats and request timeouts of 50k clients: every operation
+ * schedules all of them 30 seconds ahead and cancels them again, none of them fires.
+ * <ul>
+ *     <li>wheel: the {@link HashedWheelTimer} the server uses</li>
+ *     <li>scheduledExecutor: a single {@link ScheduledThreadPoolExecutor} that removes cancelled tasks</li>
+ * </ul>
+ * Before the shared timer every heartbeat and every request timeout had a scheduler thread of its own, which does
+ * not get anywhere near 100k. After every iteration the live threads and the timeouts still held by the wheel are
+ * printed: the thread count stays flat and the wheel holds nothing once its timeouts are cancelled. Run with
+ * {@code -prof gc} to see the bytes allocated per operation, divided by {@code timeouts} the cost of a timeout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimerBenchmark {
+    private static final long DELAY_SECONDS = 30;
+
+    @Param({"100000"})
+    public int timeouts;
+
+    private HashedWheelTimer wheel;
+    private ScheduledThreadPoolExecutor scheduledExecutor;
+    private HashedWheelTimer.Timeout[] wheelTimeouts;
+    private ScheduledFuture<?>[] futures;
+    private final Runnable task = () -> {
+    };
+
+    @Setup
+    public void setup() {
+        wheel = new HashedWheelTimer("bench-timer", 10, TimeUnit.MILLISECONDS, 512);
+        wheel.start();
+        scheduledExecutor = new ScheduledThreadPoolExecutor(1);
+        scheduledExecutor.setRemoveOnCancelPolicy(true);
+        wheelTimeouts = new HashedWheelTimer.Timeout[timeouts];
+        futures = new ScheduledFuture<?>[timeouts];
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() throws InterruptedException {
+        // the wheel unlinks cancelled timeouts on its next tick
+        Thread.sleep(50);
+        System.out.printf("%nthreads: %d (peak %d), pending in the wheel: %d, queued in the executor: %d%n",
+                ManagementFactory.getThreadMXBean().getThreadCount(),
+                ManagementFactory.getThreadMXBean().getPeakThreadCount(),
+                wheel.getPendingTimeouts(), scheduledExecutor.getQueue().size());
+    }
+
+    @TearDown
+    public void tearDown() {
+        wheel.stop();
+        scheduledExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int wheel() {
+        for (int i = 0; i < timeouts; i++) {
+            wheelTimeouts[i] = wheel.schedule(task, DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+        int cancelled = 0;
+        for (int i = 0; i < timeouts; i++) {
+            if (wheelTimeouts[i].cancel()) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    @Benchmark
+    public int scheduledExecutor() {
+        for (int i = 0; i < timeouts; i++) {
+            futures[i] = scheduledExecutor.schedule(task, DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+        int cancelled = 0;
+        for (int i = 0; i < timeouts; i++) {
+            if (futures[i].cancel(false)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+}
@@ -50,7 +50,7 @@ public class Client {
     private MessageHandlerRegistry createClientMessageHandlerRegistry(ServerConnection serverConnection) {
         MessageHandlerRegistry messageHandlerRegistry = new MessageHandlerRegistry();
         messageHandlerRegistry.registerHandler(ProtocolCommands.JOINED, new JoinedHandler());
-        messageHandlerRegistry.registerHandler(ProtocolCommands.READY, new ReadyHandler());
+        messageHandlerRegistry.registerHandler(ProtocolCommands.READY, new ReadyHandler(serverConnection));
         messageHandlerRegistry.registerHandler(ProtocolCommands.ENTER_RESP, new EnterResponseHandler());
         messageHandlerRegistry.registerHandler(ProtocolCommands.PING, new PingHandler(serverConnection));
         messageHandlerRegistry.registerHandler(ProtocolCommands.BROADCAST, new BroadcastHandler());
@@ -76,6 +76,8 @@ public class Client {
         messageHandlerRegistry.registerHandler(ProtocolCommands.TRANSFER_REJECTED, new TransferRejectedHandler());
         messageHandlerRegistry.registerHandler(ProtocolCommands.TRANSFER_FAILED, new TransferFailedHandler(serverConnection));
         messageHandlerRegistry.registerHandler(ProtocolCommands.TRANSFER_SUCCESS, new TransferSuccessHandler(serverConnection));
+        messageHandlerRegistry.registerHandler(ProtocolCommands.FEATURE_RESP, new FeatureRespHandler(serverConnection));
+        messageHandlerRegistry.registerHandler(ProtocolCommands.PRESENCE, new PresenceHandler());
 
         return messageHandlerRegistry;
     }
@@ -31,6 +31,7 @@ public class MessageErrorHandler {
         errorMessages.put(ErrorCode.USER_UNEXPECTEDLY_DISCONNECTED, ErrorCode.USER_UNEXPECTEDLY_DISCONNECTED.getExplanation());
         errorMessages.put(ErrorCode.COMMAND_NOT_EXPECTED, ErrorCode.COMMAND_NOT_EXPECTED.getExplanation());
         errorMessages.put(ErrorCode.CHECKSUMS_NOT_EQUAL, ErrorCode.CHECKSUMS_NOT_EQUAL.getExplanation());
+        errorMessages.put(ErrorCode.FEATURES_ALREADY_NEGOTIATED, ErrorCode.FEATURES_ALREADY_NEGOTIATED.getExplanation());
     }
 
     private MessageErrorHandler() {}
@@ -1,17 +1,32 @@
 package client.connection;
 
+import client.constants.ClientConfig;
+import shared.connection.CompressionStats;
 import shared.connection.Connection;
+import shared.connection.StreamCompressor;
+import shared.constants.ProtocolFeatures;
+import shared.constants.WireFormat;
+import shared.messages.model.client.FeatureReq;
+import shared.messages.model.server.FeatureResp;
+import shared.utils.BinaryCodec;
+import shared.utils.JsonUtils;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
 
 import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 
@@ -19,12 +34,23 @@ import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
  * A base class for the server connection.
  * It is responsible for creating a connection to the server and handling the connection state.
  * Also responsible for storing user files and session ids.
+ * Messages are sent as plain text lines until the server accepted the binary wire format or compression,
+ * see {@link #requestFeatures(List)}.
  */
 public class ServerConnection implements Connection {
     private Socket clientSocket;
     private BufferedReader in;
     private PrintWriter out;
+    private OutputStream rawOut;
     private boolean connected;
+    private volatile WireFormat wireFormat = WireFormat.TEXT;
+    // messages are held back from the start, the user may send something before READY arrived and FEATURE_REQ went out
+    private boolean negotiating = ClientConfig.BINARY_WIRE_FORMAT || ClientConfig.DEFLATE;
+    private volatile boolean compressed;
+    private StreamCompressor compressor;
+    private final CompressionStats outboundCompression = new CompressionStats();
+    private final CompressionStats inboundCompression = new CompressionStats();
+    private final List<String> pendingMessages = new ArrayList<>();
     private final String ip;
     private final int port;
     private final Map<String, String> userFiles = new ConcurrentHashMap<>();
@@ -56,7 +82,8 @@ public class ServerConnection implements Connection {
         executor.scheduleAtFixedRate(() -> {
             try {
                 clientSocket = new Socket(ip, port);
-                out = new PrintWriter(clientSocket.getOutputStream(), true);
+                rawOut = clientSocket.getOutputStream();
+                out = new PrintWriter(rawOut, true);
                 in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
 
                 synchronized (this) {
@@ -82,13 +109,97 @@ public class ServerConnection implements Connection {
         }
     }
 
-    public void sendMessage(String message) {
-        getOutputStream().println(message);
-        getOutputStream().flush();
+    @Override
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    @Override
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    @Override
+    public CompressionStats getInboundCompressionStats() {
+        return inboundCompression;
+    }
+
+    /**
+     * Sends a message in the format {@code <command> <json payload>}. While features are negotiated the message is
+     * held back and sent once the wire format is known.
+     * @param message the message to send
+     */
+    public synchronized void sendMessage(String message) {
+        if (negotiating) {
+            pendingMessages.add(message);
+            return;
+        }
+        write(message);
+    }
+
+    /**
+     * Asks the server for optional protocol features. Must be sent right after READY, nothing else is sent until
+     * the server answered, see {@link #onFeatureResp(FeatureResp)}. Messages are already held back from the start
+     * if {@link ClientConfig#BINARY_WIRE_FORMAT} is set.
+     * @param features the names of the features, see {@link ProtocolFeatures}
+     */
+    public synchronized void requestFeatures(List<String> features) {
+        write(JsonUtils.classToMessage(new FeatureReq(features)));
+        negotiating = true;
+    }
+
+    /**
+     * Completes the negotiation: switches to the binary wire format and compression if the server enabled them,
+     * then sends the messages that were held back in the meantime.
+     * @param response the response of the server
+     */
+    public synchronized void onFeatureResp(FeatureResp response) {
+        List<String> features = response.features() != null ? response.features() : List.of();
+        if (features.contains(ProtocolFeatures.BINARY.name())) {
+            wireFormat = WireFormat.BINARY;
+        }
+        if (features.contains(ProtocolFeatures.DEFLATE.name())) {
+            compressor = new StreamCompressor(Deflater.DEFAULT_COMPRESSION, outboundCompression);
+            compressed = true;
+        }
+        negotiating = false;
+
+        for (String message : pendingMessages) {
+            write(message);
+        }
+        pendingMessages.clear();
+    }
+
+    private void write(String message) {
+        if (wireFormat == WireFormat.TEXT && compressor == null) {
+            getOutputStream().println(message);
+            getOutputStream().flush();
+            return;
+        }
+
+        try {
+            // the client builds its messages as text, they are converted to binary when sent
+            byte[] bytes = wireFormat == WireFormat.BINARY
+                    ? BinaryCodec.classToFrame(JsonUtils.<Object>messageToClass(message))
+                    : (message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+            if (compressor != null) {
+                ByteBuffer compressedBytes = compressor.compress(bytes, 0, bytes.length);
+                rawOut.write(compressedBytes.array(), 0, compressedBytes.limit());
+            } else {
+                rawOut.write(bytes);
+            }
+            rawOut.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to send message: " + e.getMessage());
+        }
     }
 
     @Override
     public void closeConnection() {
+        if (compressed) {
+            System.out.println("Compression sent: " + outboundCompression + ", received: " + inboundCompression);
+        }
+
         connected = false;
         if (clientSocket != null) {
             try {
@@ -8,4 +8,10 @@ public class ClientConfig {
     public static final String SERVER_IP = "127.0.0.1";
     public static final int SERVER_PORT = 1337;
     public static final int FILE_TRANSFER_PORT = 8080;
+    // -Dclient.binary=true asks the server for the binary wire format right after READY
+    public static final boolean BINARY_WIRE_FORMAT = Boolean.getBoolean("client.binary");
+    // -Dclient.deflate=true asks the server to compress the connection right after READY
+    public static final boolean DEFLATE = Boolean.getBoolean("client.deflate");
+    // -Dclient.presence=true asks the server to batch JOINED and LEFT into PRESENCE messages right after READY
+    public static final boolean PRESENCE = Boolean.getBoolean("client.presence");
 }
@@ -0,0 +1,27 @@
+package client.messages.handlers;
+
+import client.MessageErrorHandler;
+import client.connection.ServerConnection;
+import shared.constants.ConsoleColors;
+import shared.messages.handling.MessageHandler;
+import shared.messages.model.server.FeatureResp;
+import shared.utils.PrintingUtils;
+
+public class FeatureRespHandler implements MessageHandler<FeatureResp> {
+    private final ServerConnection serverConnection;
+
+    public FeatureRespHandler(ServerConnection serverConnection) {
+        this.serverConnection = serverConnection;
+    }
+
+    @Override
+    public void handle(FeatureResp message) {
+        serverConnection.onFeatureResp(message);
+
+        if (message.status().equalsIgnoreCase("ok")) {
+            PrintingUtils.printMessage("Enabled features: " + message.features(), ConsoleColors.GREEN);
+        } else {
+            MessageErrorHandler.getInstance().handleError(message.code());
+        }
+    }
+}
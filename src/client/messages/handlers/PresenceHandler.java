@@ -0,0 +1,23 @@
+package client.messages.handlers;
+
+import shared.constants.ConsoleColors;
+import shared.messages.handling.MessageHandler;
+import shared.messages.model.server.Presence;
+import shared.utils.PrintingUtils;
+
+public class PresenceHandler implements MessageHandler<Presence> {
+    @Override
+    public void handle(Presence message) {
+        // users that left and joined again are listed in both, the leave happened first
+        if (message.left() != null) {
+            for (String username : message.left()) {
+                PrintingUtils.printMessage("Left: " + username, ConsoleColors.RED);
+            }
+        }
+        if (message.joined() != null) {
+            for (String username : message.joined()) {
+                PrintingUtils.printMessage(username + " has joined the chat.", ConsoleColors.GREEN);
+            }
+        }
+    }
+}
@@ -1,13 +1,39 @@
 package client.messages.handlers;
 
+import client.connection.ServerConnection;
+import client.constants.ClientConfig;
 import shared.constants.ConsoleColors;
+import shared.constants.ProtocolFeatures;
 import shared.messages.handling.MessageHandler;
 import shared.messages.model.server.Ready;
 import shared.utils.PrintingUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ReadyHandler implements MessageHandler<Ready> {
+    private final ServerConnection serverConnection;
+
+    public ReadyHandler(ServerConnection serverConnection) {
+        this.serverConnection = serverConnection;
+    }
+
     @Override
     public void handle(Ready message) {
         PrintingUtils.printMessage("Server is ready. Version: " + message.version(), ConsoleColors.GREEN);
+
+        List<String> features = new ArrayList<>();
+        if (ClientConfig.BINARY_WIRE_FORMAT) {
+            features.add(ProtocolFeatures.BINARY.name());
+        }
+        if (ClientConfig.DEFLATE) {
+            features.add(ProtocolFeatures.DEFLATE.name());
+        }
+        if (ClientConfig.PRESENCE) {
+            features.add(ProtocolFeatures.PRESENCE.name());
+        }
+        if (!features.isEmpty()) {
+            serverConnection.requestFeatures(features);
+        }
     }
 }
@@ -1,10 +1,17 @@
 package server;
 
+import server.connection.AdmissionController;
 import server.connection.ClientConnection;
+import server.connection.OverflowPolicy;
 import server.constants.ServerConfig;
 import server.logger.ServerLogger;
+import server.metrics.MetricsServer;
+import server.messages.ServerParserListener;
 import server.messages.handlers.*;
+import server.nio.NioServer;
 import server.pingpong.PingPongManager;
+import server.ratelimit.RateLimitFilter;
+import server.ratelimit.RateLimiter;
 import server.transfer.FileTransferServer;
 import shared.constants.ProtocolCommands;
 import shared.messages.handling.MessageHandlerRegistry;
@@ -14,31 +21,69 @@ import shared.messages.model.server.Ready;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.Executor;
 
 /**
  * The server class is responsible for starting the server and handling incoming connections.
  * This represents entry point of the server application. This is only messaging server,
  * the {@link server.transfer.FileTransferServer} is started in a separate thread.
+ * Depending on {@link ServerConfig#EXECUTION_MODE} clients are served by a (platform or virtual) thread each
+ * or by the {@link NioServer}.
  */
 public class Server {
     public static void main(String[] args) {new Server().start();}
 
     public void start() {
-        new Thread(new FileTransferServer(ServerConfig.FILE_TRANSFER_PORT)).start();
+        OverflowPolicy.load();
+        new Thread(new FileTransferServer(ServerConfig.FILE_TRANSFER_PORT, ServerExecutors.clientExecutor())).start();
+        startMetrics();
+
+        switch (ServerConfig.EXECUTION_MODE) {
+            case THREAD_PER_CONNECTION, VIRTUAL_THREADS -> startThreadPerConnection();
+            case EVENT_LOOP -> startEventLoop();
+        }
+    }
+
+    /**
+     * Starts the {@link MetricsServer} unless it is turned off. The chat server runs without it if the port is taken.
+     */
+    private void startMetrics() {
+        if (ServerConfig.METRICS_PORT <= 0) {
+            return;
+        }
+
+        try {
+            new MetricsServer(ServerConfig.METRICS_ADDRESS, ServerConfig.METRICS_PORT).start();
+        } catch (IOException e) {
+            System.err.println("Metrics server error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Accepts clients on a blocking server socket and runs a parser for every client on the client executor,
+     * see {@link ServerExecutors#clientExecutor()}.
+     */
+    private void startThreadPerConnection() {
+        Executor clientExecutor = ServerExecutors.clientExecutor();
 
         try (ServerSocket serverSocket = new ServerSocket(ServerConfig.SERVER_PORT)) {
             while (serverSocket.isBound()) {
                 Socket clientSocket = serverSocket.accept();
 
+                // Reject the client before anything is allocated for it
+                if (!AdmissionController.getInstance().admitOrClose(clientSocket.getInetAddress(), clientSocket)) {
+                    continue;
+                }
+
                 // Create Connection instance
                 ClientConnection clientConnection = new ClientConnection(clientSocket);
 
-                // Create PingPongManager instance for each client (Unfinished)
+                // Create PingPongManager instance for each client
                 PingPongManager pingPongManager = new PingPongManager(clientConnection);
 
                 // Create handlers specific to the client
                 MessageHandlerRegistry messageHandlerRegistry = createServerMessageHandlerRegistry(clientConnection, pingPongManager);
-                new Thread((new MessageParser(clientConnection, messageHandlerRegistry, true))).start();
+                clientExecutor.execute(new MessageParser(clientConnection, messageHandlerRegistry, new ServerParserListener(clientConnection)));
 
                 // Send the client a ready message
                 clientConnection.sendMessage(new Ready(String.valueOf(ServerConfig.VERSION)));
@@ -51,6 +96,27 @@ public class Server {
         }
     }
 
+    /**
+     * Accepts clients with the {@link NioServer}. Reading and dispatching is done by its event loops,
+     * so no thread is started per client.
+     */
+    private void startEventLoop() {
+        try {
+            NioServer nioServer = new NioServer(ServerConfig.SERVER_PORT, ServerConfig.ACCEPTOR_THREADS, ServerConfig.EVENT_LOOP_THREADS);
+
+            nioServer.start((clientConnection, transport) -> {
+                PingPongManager pingPongManager = new PingPongManager(clientConnection);
+                MessageHandlerRegistry messageHandlerRegistry = createServerMessageHandlerRegistry(clientConnection, pingPongManager);
+                transport.bind(clientConnection, new MessageParser(clientConnection, messageHandlerRegistry, new ServerParserListener(clientConnection)));
+
+                clientConnection.sendMessage(new Ready(String.valueOf(ServerConfig.VERSION)));
+                ServerLogger.logClientCount();
+            });
+        } catch (IOException e) {
+            System.err.println("Server error: " + e.getMessage());
+        }
+    }
+
     /**
      * Creates a message handler registry for the server and register the handlers for the commands that the server.
      *
@@ -71,6 +137,8 @@ public class Server {
         messageHandlerRegistry.registerHandler(ProtocolCommands.TRANSFER_ACCEPT, new TransferAcceptHandler(clientConnection));
         messageHandlerRegistry.registerHandler(ProtocolCommands.TRANSFER_REJECT, new TransferRejectHandler(clientConnection));
         messageHandlerRegistry.registerHandler(ProtocolCommands.TRANSFER_CHECKSUM, new TransferChecksumHandler(clientConnection));
+        messageHandlerRegistry.registerHandler(ProtocolCommands.FEATURE_REQ, new FeatureReqHandler(clientConnection));
+        messageHandlerRegistry.registerFilter(new RateLimitFilter(clientConnection, RateLimiter.getInstance()));
         return messageHandlerRegistry;
     }
 }
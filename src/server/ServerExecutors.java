@@ -0,0 +1,63 @@
+package server;
+
+import server.constants.ExecutionMode;
+import server.constants.ServerConfig;
+import server.timeout.HashedWheelTimer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the executors shared by all blocking client work of the server: message parsers, file transfer handlers
+ * and heartbeats. Which threads are used depends on {@link ServerConfig#EXECUTION_MODE}.
+ * Also holds the timer wheel for all timed work, e.g. heartbeats, request timeouts and slow consumer checks.
+ */
+public class ServerExecutors {
+    private static final ExecutorService virtualThreadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private static final HashedWheelTimer timer = startTimer();
+
+    private ServerExecutors() {}
+
+    /**
+     * Get the executor that runs the blocking per-client tasks (message parsers and file transfer handlers).
+     * In the thread per connection mode every task gets a new platform thread, otherwise a new virtual thread.
+     *
+     * @return the executor for per-client tasks
+     */
+    public static Executor clientExecutor() {
+        if (ServerConfig.EXECUTION_MODE == ExecutionMode.VIRTUAL_THREADS) {
+            return virtualThreadExecutor;
+        }
+        return task -> new Thread(task).start();
+    }
+
+    /**
+     * Get the executor for short timed tasks that may block, e.g. heartbeats that close a connection once they are due.
+     * They run on virtual threads in every execution mode, so they neither hold up the {@link #timer()} nor cost a
+     * platform thread each.
+     *
+     * @return the executor for timed tasks
+     */
+    public static Executor timedTaskExecutor() {
+        return virtualThreadExecutor;
+    }
+
+    /**
+     * Get the timer shared by the timed work of all clients. A pending timeout costs a small object instead of a
+     * thread. It only keeps the time, anything that may block is handed off to the {@link #clientExecutor()}.
+     *
+     * @return the shared timer
+     */
+    public static HashedWheelTimer timer() {
+        return timer;
+    }
+
+    private static HashedWheelTimer startTimer() {
+        HashedWheelTimer serverTimer = new HashedWheelTimer("server-timer", ServerConfig.TIMER_TICK,
+                TimeUnit.MILLISECONDS, ServerConfig.TIMER_WHEEL_SIZE);
+        serverTimer.start();
+        return serverTimer;
+    }
+}
@@ -0,0 +1,157 @@
+package server.connection;
+
+import server.constants.ServerConfig;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether an accepted socket may become a {@link ClientConnection}. It is asked right after the accept,
+ * before any per-client resources (transport, parser, heartbeat) are created, so a reconnect storm is rejected
+ * by closing the socket and nothing else. A connection is admitted if
+ * <ul>
+ *     <li>the accept rate allows it, see {@link ServerConfig#ACCEPT_RATE} and {@link ServerConfig#ACCEPT_BURST}</li>
+ *     <li>less than {@link ServerConfig#MAX_CONNECTIONS} connections are admitted in total</li>
+ *     <li>less than {@link ServerConfig#MAX_CONNECTIONS_PER_ADDRESS} connections are admitted from its address</li>
+ * </ul>
+ * Every admitted connection is released again when it is closed.
+ */
+public class AdmissionController {
+    /**
+     * Why a connection was rejected.
+     */
+    public enum Rejection {
+        RATE_LIMITED,
+        MAX_CONNECTIONS,
+        MAX_CONNECTIONS_PER_ADDRESS
+    }
+
+    private static final long REJECTION_LOG_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final AdmissionController instance = new AdmissionController();
+
+    private final TokenBucket acceptRate = new TokenBucket(ServerConfig.ACCEPT_BURST, ServerConfig.ACCEPT_RATE);
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Map<InetAddress, Integer> connectionsPerAddress = new ConcurrentHashMap<>();
+    private final LongAdder admitted = new LongAdder();
+    private final Map<Rejection, LongAdder> rejected = new EnumMap<>(Rejection.class);
+    private final AtomicLong lastRejectionLog = new AtomicLong(System.nanoTime() - REJECTION_LOG_INTERVAL);
+
+    private AdmissionController() {
+        for (Rejection rejection : Rejection.values()) {
+            rejected.put(rejection, new LongAdder());
+        }
+    }
+
+    public static AdmissionController getInstance() {
+        return instance;
+    }
+
+    /**
+     * Admits a connection from an address or rejects it.
+     * @param address the remote address of the accepted socket
+     * @return true if the connection is admitted and must be released when it is closed
+     */
+    public boolean tryAdmit(InetAddress address) {
+        if (!acceptRate.tryAcquire()) {
+            return reject(Rejection.RATE_LIMITED);
+        }
+
+        if (connections.incrementAndGet() > ServerConfig.MAX_CONNECTIONS) {
+            connections.decrementAndGet();
+            return reject(Rejection.MAX_CONNECTIONS);
+        }
+
+        if (connectionsPerAddress.merge(address, 1, Integer::sum) > ServerConfig.MAX_CONNECTIONS_PER_ADDRESS) {
+            release(address);
+            return reject(Rejection.MAX_CONNECTIONS_PER_ADDRESS);
+        }
+
+        admitted.increment();
+        return true;
+    }
+
+    /**
+     * Admits a connection from an address or closes the socket right away.
+     * @param address the remote address of the accepted socket
+     * @param socket the accepted socket or channel
+     * @return true if the connection is admitted, false if it was rejected and closed
+     */
+    public boolean admitOrClose(InetAddress address, Closeable socket) {
+        if (tryAdmit(address)) {
+            return true;
+        }
+
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // the rejected client is gone already
+        }
+        return false;
+    }
+
+    /**
+     * Releases an admitted connection when it is closed.
+     * @param address the remote address of the connection
+     */
+    public void release(InetAddress address) {
+        connectionsPerAddress.computeIfPresent(address, (key, count) -> count == 1 ? null : count - 1);
+        connections.decrementAndGet();
+    }
+
+    /**
+     * Counts a rejected connection. Rejections are logged at most once per second, so a storm does not flood the log.
+     */
+    private boolean reject(Rejection rejection) {
+        rejected.get(rejection).increment();
+
+        long now = System.nanoTime();
+        long lastLog = lastRejectionLog.get();
+        if (now - lastLog >= REJECTION_LOG_INTERVAL && lastRejectionLog.compareAndSet(lastLog, now)) {
+            System.err.println("Rejecting connections (" + rejection + "): " + this);
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of connections that are currently admitted.
+     * @return the number of open admitted connections
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected(Rejection rejection) {
+        return rejected.get(rejection).sum();
+    }
+
+    /**
+     * Get the number of connections that were rejected for any reason.
+     * @return the total number of rejected connections
+     */
+    public long getRejected() {
+        long total = 0;
+        for (LongAdder adder : rejected.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d admitted, %d rejected (rate %d, max connections %d, max per address %d)",
+                getAdmitted(), getRejected(), getRejected(Rejection.RATE_LIMITED), getRejected(Rejection.MAX_CONNECTIONS),
+                getRejected(Rejection.MAX_CONNECTIONS_PER_ADDRESS));
+    }
+}
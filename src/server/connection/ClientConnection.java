@@ -1,61 +1,98 @@
 package server.connection;
 
+import server.constants.ServerConfig;
+import server.jfr.OutboundEnqueueEvent;
 import server.logger.LogEntry;
 import server.logger.ServerLogger;
+import server.metrics.ServerMetrics;
+import server.ratelimit.RateLimiter;
+import shared.connection.CompressionStats;
 import shared.connection.Connection;
-import shared.utils.JsonUtils;
+import shared.constants.WireFormat;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.Socket;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Represents a connection to a client. This class is responsible for handling the connection to a client.
+ * Sending never blocks: messages are added to a bounded {@link OutboundQueue} that the {@link ClientTransport}
+ * drains on its own writer, so a slow client can not stall the thread that sends to it.
+ * A {@link SlowConsumerGuard} decides what happens to messages for a client that falls behind.
  * Implements {@link Connection} interface.
  */
 public class ClientConnection implements Connection {
+    private final ClientTransport transport;
     private final Socket clientSocket;
-    private String username;
-    private BufferedReader in;
-    private PrintWriter out;
+    private final String clientAddress;
+    private final OutboundQueue<OutboundFrame> outbound = new OutboundQueue<>(ServerConfig.OUTBOUND_QUEUE_CAPACITY);
+    private final SlowConsumerGuard slowConsumerGuard;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile String username;
+    private volatile WireFormat wireFormat = WireFormat.TEXT;
+    private volatile boolean compressed;
+    private volatile boolean presenceBatched;
+    private volatile long presenceSequence;
+    private final CompressionStats inboundCompression = new CompressionStats();
 
     /**
-     * Constructor for the ClientConnection class. It initializes the input and output streams for the client connection.
+     * Constructor for the ClientConnection class. Wraps the socket in a blocking {@link SocketTransport}.
      * @param clientSocket the client socket
      */
     public ClientConnection(Socket clientSocket) {
-        this.clientSocket = clientSocket;
+        this(new SocketTransport(clientSocket));
+    }
 
-        try {
-            in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            out = new PrintWriter(clientSocket.getOutputStream(), true);
-        } catch (Exception e) {
-            System.err.println("Failed to get input/output streams: " + e.getMessage());
-        }
+    /**
+     * Constructor for the ClientConnection class. Starts the writer of the transport and registers the connection
+     * in the {@link ClientRegistry}.
+     * @param transport the transport used to write to the client
+     */
+    public ClientConnection(ClientTransport transport) {
+        this.transport = transport;
+        this.clientSocket = transport.getSocket();
+        this.clientAddress = clientSocket.getInetAddress().getHostAddress();
+        this.slowConsumerGuard = new SlowConsumerGuard(this, outbound, transport);
 
+        transport.start(outbound);
         ClientRegistry.getInstance().addClient(this);
     }
 
     @Override
     public boolean isConnected() {
-        return !clientSocket.isClosed();
-    }
-    
-    public PrintWriter getOutputStream() {
-        return out;
+        return transport.isOpen();
     }
 
     @Override
     public void closeConnection() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
         try {
-            clientSocket.close();
-            in.close();
-            out.close();
-        } catch (Exception e) {
-            System.err.println("Failed to close client connection: " + e.getMessage());
+            slowConsumerGuard.stop();
+            transport.close();
         } finally {
+            DropStats dropStats = slowConsumerGuard.getDropStats();
+            if (ServerLogger.isEnabled(ServerLogger.LogType.CUSTOM)) {
+                ServerLogger.log(new LogEntry.Builder()
+                        .logType(ServerLogger.LogType.CUSTOM)
+                        .clientAddress(getClientAddress())
+                        .clientPort(getClientPort())
+                        .username(username)
+                        .message("Writes: " + transport.getWriteStats() + ", all clients average "
+                                + String.format("%.1f", WriteStats.GLOBAL.getAverageMessagesPerFlush()) + " per flush"
+                                + (dropStats.getDropped() > 0 || dropStats.getEvictions() > 0
+                                ? ". Slow consumer: " + dropStats + ", all clients " + DropStats.GLOBAL : "")
+                                + (compressed ? ". Compression out: " + transport.getCompressionStats()
+                                + ", in: " + inboundCompression : ""))
+                        .build());
+            }
+
             ClientRegistry.getInstance().removeClient(this);
+            AdmissionController.getInstance().release(clientSocket.getInetAddress());
+            if (username != null) {
+                RateLimiter.getInstance().release(username);
+            }
             ServerLogger.logClientCount();
         }
     }
@@ -65,6 +102,67 @@ public class ClientConnection implements Connection {
         return clientSocket;
     }
 
+    @Override
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    @Override
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    @Override
+    public CompressionStats getInboundCompressionStats() {
+        return inboundCompression;
+    }
+
+    /**
+     * Sends the response that completes the negotiation of the protocol features and switches the connection to
+     * the negotiated wire format and compression. The response is still written the current way, every message
+     * after it the new way. Incoming messages are decoded the new way from the next message on.
+     * @param response the response to send, e.g. {@link shared.messages.model.server.FeatureResp}
+     * @param wireFormat the new wire format
+     * @param compressed true to compress both directions from now on
+     */
+    public void switchFeatures(Object response, WireFormat wireFormat, boolean compressed) {
+        sendFrame(OutboundFrame.encode(response).switchingTo(wireFormat, compressed));
+        this.wireFormat = wireFormat;
+        this.compressed = compressed;
+    }
+
+    /**
+     * Check whether the client negotiated the PRESENCE feature and gets JOINED and LEFT batched.
+     * @return true if the client receives PRESENCE instead of JOINED and LEFT
+     */
+    public boolean isPresenceBatched() {
+        return presenceBatched;
+    }
+
+    /**
+     * Set whether the client gets JOINED and LEFT batched, see {@link server.presence.PresenceBatcher}.
+     * @param presenceBatched true if the client receives PRESENCE instead of JOINED and LEFT
+     */
+    public void setPresenceBatched(boolean presenceBatched) {
+        this.presenceBatched = presenceBatched;
+    }
+
+    /**
+     * Get the sequence number of the first presence change the client gets, see {@link server.presence.PresenceBatcher}.
+     * @return the sequence number, 0 if the client never logged in
+     */
+    public long getPresenceSequence() {
+        return presenceSequence;
+    }
+
+    /**
+     * Set the sequence number of the first presence change the client gets.
+     * @param presenceSequence the sequence number
+     */
+    public void setPresenceSequence(long presenceSequence) {
+        this.presenceSequence = presenceSequence;
+    }
+
     /**
      * Get the client's username
      * @return the client's username
@@ -82,29 +180,53 @@ public class ClientConnection implements Connection {
     }
 
     /**
-     * Send a message to the client
+     * Send a message to the client. The message is queued and written by the transport.
+     * If the client does not read fast enough, the {@link SlowConsumerGuard} may drop the message or disconnect the client.
      * @param message the message to send
      */
     public void sendMessage(String message) {
-        out.println(message);
+        offer(OutboundFrame.of(message));
     }
 
     /**
-     * Sends a converted object message to the client and log it
+     * Sends a converted object message to the client and log it, unless the message was dropped
      * @param message the object message to send
      */
     public void sendMessage(Object message) {
-        out.println(JsonUtils.classToMessage(message));
+        sendFrame(OutboundFrame.encode(message));
+    }
+
+    /**
+     * Sends an already encoded message to the client and log it, unless the message was dropped.
+     * The same frame may be sent to many clients, see {@link ClientRegistry#broadcast(Object, ClientConnection)}.
+     * @param frame the encoded message to send
+     */
+    public void sendFrame(OutboundFrame frame) {
+        if (!offer(frame)) {
+            return;
+        }
 
         // Log the message
-        ServerLogger.log(new LogEntry.Builder()
-                .logType(ServerLogger.LogType.MESSAGE)
-                .clientAddress(getClientAddress())
-                .clientPort(getClientPort())
-                .username(username)
-                .direction("<--")
-                .message(JsonUtils.classToMessage(message))
-                .build());
+        if (ServerLogger.isRecordingMessages()) {
+            ServerLogger.logMessage(clientAddress, getClientPort(), username, "<--", frame.getText());
+        }
+    }
+
+    private boolean offer(OutboundFrame frame) {
+        boolean accepted = isConnected() && slowConsumerGuard.offer(frame);
+        if (accepted) {
+            ServerMetrics.getInstance().recordSent(frame.getCommand());
+        }
+
+        OutboundEnqueueEvent event = new OutboundEnqueueEvent();
+        if (event.shouldCommit()) {
+            event.command = frame.getCommand().name();
+            event.username = username;
+            event.accepted = accepted;
+            event.queueSize = outbound.size();
+            event.commit();
+        }
+        return accepted;
     }
 
     /**
@@ -112,7 +234,7 @@ public class ClientConnection implements Connection {
      * @return the client's address
      */
     public String getClientAddress() {
-        return clientSocket.getInetAddress().getHostAddress();
+        return clientAddress;
     }
 
     /**
@@ -0,0 +1,127 @@
+package server.connection;
+
+import shared.messages.model.server.Clients;
+import shared.utils.JsonUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CLIENTS response for one version of the logged in users, serialized once. A client asking for the list is
+ * not part of its own list, its response is the cached line with its own entry cut out, so repeated requests do not
+ * serialize the users again: a request costs a lookup and a copy of the cached bytes.
+ * The {@link shared.constants.WireFormat#BINARY} encoding of a response is created from a view of the usernames
+ * that leaves out the requester.
+ */
+final class ClientListFrame {
+    private final String[] usernames;
+    private final Map<ClientConnection, Integer> indexes;
+    private final byte[] bytes;
+    // the bytes of an entry including the separating comma, [entryStart, entryEnd)
+    private final int[] entryStart;
+    private final int[] entryEnd;
+    private final OutboundFrame fullFrame;
+
+    private ClientListFrame(String[] usernames, Map<ClientConnection, Integer> indexes, byte[] bytes, int[] entryStart,
+                            int[] entryEnd) {
+        this.usernames = usernames;
+        this.indexes = indexes;
+        this.bytes = bytes;
+        this.entryStart = entryStart;
+        this.entryEnd = entryEnd;
+        this.fullFrame = OutboundFrame.ofEncoded(new Clients(List.of(usernames)), bytes);
+    }
+
+    /**
+     * Serializes the list of the logged in clients.
+     * @param clients the logged in clients, clients that logged out in the meantime are left out
+     * @return the cached list
+     */
+    static ClientListFrame of(ClientConnection[] clients) {
+        List<String> usernames = new ArrayList<>(clients.length);
+        Map<ClientConnection, Integer> indexes = new IdentityHashMap<>(clients.length);
+        for (ClientConnection client : clients) {
+            String username = client.getUsername();
+            if (username != null) {
+                indexes.put(client, usernames.size());
+                usernames.add(username);
+            }
+        }
+
+        // the line of an empty list is split around the brackets, the entries go in between
+        String empty = JsonUtils.classToMessage(new Clients(List.of()));
+        int listStart = empty.indexOf('[') + 1;
+        StringBuilder line = new StringBuilder(empty.length() + usernames.size() * 16);
+        line.append(empty, 0, listStart);
+
+        int[] entryStart = new int[usernames.size()];
+        int[] entryEnd = new int[usernames.size()];
+        for (int i = 0; i < usernames.size(); i++) {
+            // usernames are validated on login and need no escaping, one byte per character
+            entryStart[i] = line.length();
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append('"').append(usernames.get(i)).append('"');
+            entryEnd[i] = line.length();
+        }
+        line.append(empty, listStart, empty.length()).append('\n');
+
+        return new ClientListFrame(usernames.toArray(new String[0]), indexes,
+                line.toString().getBytes(StandardCharsets.UTF_8), entryStart, entryEnd);
+    }
+
+    /**
+     * Get the CLIENTS response for a client, the list without the client itself.
+     * @param requester the client asking for the list
+     * @return the frame to send to the client
+     */
+    OutboundFrame excluding(ClientConnection requester) {
+        Integer index = indexes.get(requester);
+        if (index == null) {
+            return fullFrame;
+        }
+
+        int from = entryStart[index];
+        int to = entryEnd[index];
+        if (index == 0 && usernames.length > 1) {
+            // the first entry has no comma in front, the comma of the second entry goes with it
+            to = entryStart[1] + 1;
+        }
+
+        byte[] response = new byte[bytes.length - (to - from)];
+        System.arraycopy(bytes, 0, response, 0, from);
+        System.arraycopy(bytes, to, response, from, bytes.length - to);
+        return OutboundFrame.ofEncoded(new Clients(new ExcludingList(usernames, index)), response);
+    }
+
+    /**
+     * The usernames without one of them, without copying them.
+     */
+    private static final class ExcludingList extends AbstractList<String> {
+        private final String[] usernames;
+        private final int excluded;
+
+        ExcludingList(String[] usernames, int excluded) {
+            this.usernames = usernames;
+            this.excluded = excluded;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return usernames[index < excluded ? index : index + 1];
+        }
+
+        @Override
+        public int size() {
+            return usernames.length - 1;
+        }
+    }
+}
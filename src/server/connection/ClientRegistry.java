@@ -2,6 +2,7 @@ package server.connection;
 
 import server.errors.ClientException;
 import server.errors.ErrorCode;
+import server.jfr.ClientConnectionEvent;
 import server.logger.ServerLogger;
 import server.model.TransferSession;
 import server.rps.GameManager;
@@ -14,20 +15,39 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
 /**
  * The client registry is responsible for keeping track of all the clients connected to the server.
+ * <p>
+ * Clients are indexed by their socket and logged in users by their username, the username of a client is kept by
+ * the {@link ClientConnection} itself. Every operation is a single lookup or update of a concurrent map, so none
+ * of them scans the users or takes a lock shared by all clients. Logging in claims the username with
+ * {@link Map#putIfAbsent}, two clients racing for the same name can not both get it.
+ * <p>
+ * The fan-out of broadcasts, JOINED and LEFT iterates a {@link UserSnapshot}, an array of the logged in clients.
+ * Every login and logout increases the version of the users, the snapshot is rebuilt on the first read after a
+ * change and then shared by all readers until the next change. A burst of logins therefore costs one rebuild and
+ * not one per login.
  */
 public class ClientRegistry {
-    private final Set<ClientConnection> clients = ConcurrentHashMap.newKeySet();
+    private static final Pattern USERNAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_]{3,14}$");
+
+    private final Map<Socket, ClientConnection> clients = new ConcurrentHashMap<>();
     private final Map<String, ClientConnection> users = new ConcurrentHashMap<>();
+    // increased after every change of the users
+    private final AtomicLong usersVersion = new AtomicLong();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private volatile UserSnapshot snapshot = new UserSnapshot(0, new ClientConnection[0]);
 
     private static final ClientRegistry instance = new ClientRegistry();
 
     private ClientRegistry() {
     }
 
-    public synchronized static ClientRegistry getInstance() {
+    public static ClientRegistry getInstance() {
         return instance;
     }
 
@@ -38,7 +58,8 @@ public class ClientRegistry {
      * @param client
      */
     public void addClient(ClientConnection client) {
-        clients.add(client);
+        clients.put(client.getSocket(), client);
+        recordConnectionEvent(client, true);
     }
 
     /**
@@ -50,24 +71,23 @@ public class ClientRegistry {
      * @return true if the client was logged in, false otherwise
      */
     public void logInClient(String username, ClientConnection client) throws ClientException {
-        // check if client already logged in
-        if (users.containsValue(client)) {
+        // check if client already logged in, the messages of a client are handled one at a time
+        if (client.getUsername() != null) {
             throw new ClientException(ErrorCode.ALREADY_LOGGED_IN);
         }
 
         // check username validness
-        if (username == null || !username.matches("^[a-zA-Z0-9_]{3,14}$")) {
+        if (username == null || !USERNAME_PATTERN.matcher(username).matches()) {
             throw new ClientException(ErrorCode.INVALID_USERNAME);
         }
 
-        // check if username is taken
-        if (isUsernameTaken(username)) {
+        // claim the username, fails if it is taken
+        if (users.putIfAbsent(username, client) != null) {
             throw new ClientException(ErrorCode.USERNAME_TAKEN);
         }
 
-
         client.setUsername(username);
-        users.put(username, client);
+        usersVersion.incrementAndGet();
         ServerLogger.logClientCount();
     }
 
@@ -85,18 +105,41 @@ public class ClientRegistry {
         handleActiveTransferDisconnection(client, fileTransferManager);
 
         removeClientFromUsers(client);
-        clients.remove(client);
+        clients.remove(client.getSocket(), client);
+        recordConnectionEvent(client, false);
         client.setUsername(null);
     }
 
     /**
-     * Removes a client from the registry.
+     * Records a connect or disconnect as a JFR event, if the event is enabled.
+     *
+     * @param client    - the client that connected or disconnected
+     * @param connected - true for a connect
+     */
+    private void recordConnectionEvent(ClientConnection client, boolean connected) {
+        ClientConnectionEvent event = new ClientConnectionEvent();
+        if (event.shouldCommit()) {
+            event.connected = connected;
+            event.clientAddress = client.getClientAddress();
+            event.clientPort = client.getClientPort();
+            event.username = client.getUsername();
+            event.clients = clients.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Removes a client from the logged in users.
      *
      * @param client - the client to remove
      */
     private void removeClientFromUsers(ClientConnection client) {
-        if (users.containsValue(client)) {
-            users.entrySet().removeIf(entry -> entry.getValue().equals(client));
+        String username = client.getUsername();
+        if (username != null) {
+            // only the entry of this client, the name may belong to another client already
+            if (users.remove(username, client)) {
+                usersVersion.incrementAndGet();
+            }
         }
     }
 
@@ -175,18 +218,90 @@ public class ClientRegistry {
      * @return the username of the client or null if not found
      */
     public String getUsernameBySocket(Socket socket) {
-        for (Map.Entry<String, ClientConnection> entry : users.entrySet()) {
-            if (entry.getValue().getSocket().equals(socket)) {
-                return entry.getKey();
+        ClientConnection client = getClientBySocket(socket);
+        return client == null ? null : client.getUsername();
+    }
+
+    /**
+     * Gets a client by the socket.
+     *
+     * @param socket - the socket of the client
+     * @return the client or null if the socket is not registered
+     */
+    public ClientConnection getClientBySocket(Socket socket) {
+        return clients.get(socket);
+    }
+
+    /**
+     * Sends a message to all logged in clients except one. The message is serialized once and the same
+     * encoded frame is queued for every recipient.
+     *
+     * @param message  - the message object to send
+     * @param excluded - the client that does not receive the message (usually the sender), may be null
+     */
+    public void broadcast(Object message, ClientConnection excluded) {
+        OutboundFrame frame = OutboundFrame.encode(message);
+        for (ClientConnection client : getLoggedInSnapshot()) {
+            if (client != excluded) {
+                client.sendFrame(frame);
             }
         }
-        return null;
     }
 
     /**
-     * Gets all the clients in the registry.
+     * Gets the logged in clients as of the last login or logout, without copying them. The array is shared by
+     * all callers and must not be modified.
      *
-     * @return a list of all the clients
+     * @return the logged in clients
+     */
+    public ClientConnection[] getLoggedInSnapshot() {
+        return currentSnapshot().clients;
+    }
+
+    /**
+     * Gets the CLIENTS response for a client: the usernames of the other logged in clients. The list is serialized
+     * once per version of the users and shared by all requests until the next login or logout.
+     *
+     * @param requester - the client asking for the list, left out of it
+     * @return the frame to send to the client
+     */
+    public OutboundFrame getClientsFrame(ClientConnection requester) {
+        UserSnapshot current = currentSnapshot();
+        ClientListFrame clientList = current.clientList;
+        if (clientList == null) {
+            // racy, every thread that finds it missing builds the same list
+            clientList = ClientListFrame.of(current.clients);
+            current.clientList = clientList;
+        }
+        return clientList.excluding(requester);
+    }
+
+    private UserSnapshot currentSnapshot() {
+        UserSnapshot current = snapshot;
+        long version = usersVersion.get();
+        if (current.version == version) {
+            return current;
+        }
+
+        snapshotLock.lock();
+        try {
+            current = snapshot;
+            // read before the users, every change up to this version is visible in the iteration
+            version = usersVersion.get();
+            if (current.version != version) {
+                current = new UserSnapshot(version, users.values().toArray(new ClientConnection[0]));
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Gets a copy of the logged in clients by username.
+     *
+     * @return the logged in clients
      */
     public Map<String, ClientConnection> getLoggedInClients() {
         return Map.copyOf(users);
@@ -198,7 +313,7 @@ public class ClientRegistry {
      * @return a list of all the clients
      */
     public Set<ClientConnection> getClients() {
-        return Set.copyOf(clients);
+        return Set.copyOf(clients.values());
     }
 
     /**
@@ -218,4 +333,19 @@ public class ClientRegistry {
     public int getLoggedInUsers() {
         return users.size();
     }
+
+    /**
+     * The logged in clients at a version of the users, and the CLIENTS response built from them on the first
+     * request.
+     */
+    private static final class UserSnapshot {
+        private final long version;
+        private final ClientConnection[] clients;
+        private volatile ClientListFrame clientList;
+
+        private UserSnapshot(long version, ClientConnection[] clients) {
+            this.version = version;
+            this.clients = clients;
+        }
+    }
 }
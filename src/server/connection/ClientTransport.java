@@ -0,0 +1,55 @@
+package server.connection;
+
+import shared.connection.CompressionStats;
+
+import java.net.Socket;
+
+/**
+ * Represents the way protocol lines reach a client. A {@link ClientConnection} never writes to the socket itself,
+ * it adds lines to its {@link OutboundQueue} and the transport drains that queue on its own writer: a virtual thread
+ * for blocking sockets or the event loop for channels. The connection does not know which one it is using.
+ */
+public interface ClientTransport {
+    /**
+     * Get the socket of the client. For channel based transports this is the socket adapter of the channel,
+     * which is only used for addressing and state, never for reading or writing.
+     * @return the client socket
+     */
+    Socket getSocket();
+
+    /**
+     * Checks if the transport is still open for writing.
+     * @return true if the transport is open
+     */
+    boolean isOpen();
+
+    /**
+     * Starts draining the outbound queue of the client.
+     * @param outbound the outbound queue of the client
+     */
+    void start(OutboundQueue<OutboundFrame> outbound);
+
+    /**
+     * Signals the writer that lines were added to the outbound queue. Never blocks.
+     */
+    void signal();
+
+    /**
+     * Get the write counters of this transport.
+     * @return the write statistics
+     */
+    WriteStats getWriteStats();
+
+    /**
+     * Get the compression counters of this transport, only filled once the client negotiated compression.
+     * The write statistics always count the uncompressed bytes.
+     * @return the compression statistics
+     */
+    CompressionStats getCompressionStats();
+
+    /**
+     * Closes the transport. Lines queued before the call are still written if the client keeps reading,
+     * then the underlying socket is closed.
+     */
+    void close();
+}
@@ -0,0 +1,93 @@
+package server.connection;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the outbound messages that were not delivered to slow clients, by reason, and the clients that were
+ * disconnected for being too slow. Every connection has its own instance and every drop is added to the
+ * {@link #GLOBAL} totals as well.
+ */
+public class DropStats {
+    public static final DropStats GLOBAL = new DropStats();
+
+    /**
+     * Why a message was not delivered.
+     */
+    public enum Reason {
+        /**
+         * The overflow policy of the command is {@link OverflowPolicy#DROP}.
+         */
+        POLICY,
+        /**
+         * A newer message with the same payload replaced it.
+         */
+        CONFLATED,
+        /**
+         * The outbound queue was full, the client is disconnected.
+         */
+        QUEUE_FULL,
+        /**
+         * The client was disconnected before the held back message could be delivered.
+         */
+        CLOSED
+    }
+
+    private final Map<Reason, LongAdder> dropped = new EnumMap<>(Reason.class);
+    private final LongAdder evictions = new LongAdder();
+
+    public DropStats() {
+        for (Reason reason : Reason.values()) {
+            dropped.put(reason, new LongAdder());
+        }
+    }
+
+    /**
+     * Records a message that was not delivered.
+     * @param reason why the message was not delivered
+     */
+    public void recordDrop(Reason reason) {
+        dropped.get(reason).increment();
+        if (this != GLOBAL) {
+            GLOBAL.dropped.get(reason).increment();
+        }
+    }
+
+    /**
+     * Records a client that was disconnected for being too slow.
+     */
+    public void recordEviction() {
+        evictions.increment();
+        if (this != GLOBAL) {
+            GLOBAL.evictions.increment();
+        }
+    }
+
+    public long getDropped(Reason reason) {
+        return dropped.get(reason).sum();
+    }
+
+    /**
+     * Get the number of messages that were not delivered for any reason.
+     * @return the total number of dropped messages
+     */
+    public long getDropped() {
+        long total = 0;
+        for (LongAdder adder : dropped.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d dropped (policy %d, conflated %d, queue full %d, closed %d), %d eviction(s)",
+                getDropped(), getDropped(Reason.POLICY), getDropped(Reason.CONFLATED), getDropped(Reason.QUEUE_FULL),
+                getDropped(Reason.CLOSED), getEvictions());
+    }
+}
@@ -0,0 +1,168 @@
+package server.connection;
+
+import shared.constants.ProtocolCommands;
+import shared.constants.WireFormat;
+import shared.utils.BinaryCodec;
+import shared.utils.JsonUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An outbound message that is serialized and encoded once. The same frame can be queued for any number of clients,
+ * e.g. a broadcast is encoded once for all recipients instead of once per recipient. Frames are immutable and live
+ * on the heap, so they are simply shared and collected once the last transport wrote them.
+ * The {@link WireFormat#BINARY} encoding is only created when the first binary client is sent the frame, so text
+ * and binary clients share the frame as well.
+ */
+public final class OutboundFrame {
+    private final ProtocolCommands command;
+    private final Object message;
+    // created from the bytes when needed if the frame was created from encoded bytes
+    private String text;
+    private final byte[] bytes;
+    private final WireFormat switchTo;
+    private final boolean compressedAfter;
+    // written racily, every thread that finds it missing encodes the same bytes
+    private volatile byte[] binaryBytes;
+
+    private OutboundFrame(ProtocolCommands command, Object message, String text, byte[] bytes, WireFormat switchTo,
+                          boolean compressedAfter) {
+        this.command = command;
+        this.message = message;
+        this.text = text;
+        this.bytes = bytes;
+        this.switchTo = switchTo;
+        this.compressedAfter = compressedAfter;
+    }
+
+    private OutboundFrame(ProtocolCommands command, Object message, String text) {
+        this(command, message, text, (text + "\n").getBytes(StandardCharsets.UTF_8), null, false);
+    }
+
+    /**
+     * Serializes a message object into a frame.
+     * @param message the message object, e.g. {@link shared.messages.model.server.Broadcast}
+     * @return the encoded frame
+     */
+    public static OutboundFrame encode(Object message) {
+        return new OutboundFrame(JsonUtils.getCommandFromClass(message.getClass()), message, JsonUtils.classToMessage(message));
+    }
+
+    /**
+     * Creates a frame from a message line in the format {@code <command> <json payload>}.
+     * @param line the message line without the line separator
+     * @return the encoded frame
+     */
+    public static OutboundFrame of(String line) {
+        int space = line.indexOf(' ');
+        ProtocolCommands command;
+        try {
+            command = ProtocolCommands.valueOf(space == -1 ? line : line.substring(0, space));
+        } catch (IllegalArgumentException e) {
+            command = ProtocolCommands.UNKNOWN_COMMAND;
+        }
+        return new OutboundFrame(command, null, line);
+    }
+
+    /**
+     * Creates a frame from a message that is encoded already, e.g. a cached message.
+     * @param message the message object, used for the {@link WireFormat#BINARY} encoding
+     * @param bytes the UTF-8 encoded message line including the line separator, shared and not modified
+     * @return the frame
+     */
+    public static OutboundFrame ofEncoded(Object message, byte[] bytes) {
+        return new OutboundFrame(JsonUtils.getCommandFromClass(message.getClass()), message, null, bytes, null, false);
+    }
+
+    /**
+     * Creates a copy of this frame after which the transport writes all following frames in another wire format
+     * and possibly compressed. Used for the response that completes the negotiation of the protocol features, which
+     * is itself still written the old way. The switch happens in the order of the outbound queue, so no frame that
+     * was queued earlier or concurrently can end up in the wrong format.
+     * @param wireFormat the wire format of the frames after this one
+     * @param compressed true if the frames after this one are compressed
+     * @return the switching frame
+     */
+    public OutboundFrame switchingTo(WireFormat wireFormat, boolean compressed) {
+        return new OutboundFrame(command, message, getText(), bytes, wireFormat, compressed);
+    }
+
+    /**
+     * Get the wire format the transport switches to after writing this frame.
+     * @return the new wire format or null if the frame does not switch
+     */
+    public WireFormat getSwitchTo() {
+        return switchTo;
+    }
+
+    /**
+     * Checks if the transport compresses the frames after this one, only set on a switching frame.
+     * @return true if compression starts after this frame
+     */
+    public boolean isCompressedAfter() {
+        return compressedAfter;
+    }
+
+    public ProtocolCommands getCommand() {
+        return command;
+    }
+
+    /**
+     * Get the message line without the line separator, e.g. for logging.
+     * @return the message line
+     */
+    public String getText() {
+        if (text == null) {
+            // racy like the binary bytes, every thread creates the same text
+            text = new String(bytes, 0, bytes.length - 1, StandardCharsets.UTF_8);
+        }
+        return text;
+    }
+
+    /**
+     * Get the payload of the message, the part after the command.
+     * @return the payload or an empty string if the message has none
+     */
+    public String getPayload() {
+        String text = getText();
+        int space = text.indexOf(' ');
+        return space == -1 ? "" : text.substring(space + 1);
+    }
+
+    /**
+     * Get the UTF-8 encoded message including the line separator. The array is shared and must not be modified.
+     * @return the encoded message
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the message encoded in a wire format. The array is shared and must not be modified.
+     * @param wireFormat the wire format of the receiving connection
+     * @return the encoded message, a line for {@link WireFormat#TEXT} and a length prefixed frame for {@link WireFormat#BINARY}
+     */
+    public byte[] getBytes(WireFormat wireFormat) {
+        if (wireFormat == WireFormat.TEXT) {
+            return bytes;
+        }
+
+        byte[] binary = binaryBytes;
+        if (binary == null) {
+            binary = BinaryCodec.classToFrame(command, message != null ? message : parseMessage());
+            binaryBytes = binary;
+        }
+        return binary;
+    }
+
+    /**
+     * Parses the message of a frame that was created from a line, e.g. {@code PARSE_ERROR}.
+     * @return the message object or null if the command has no message class
+     */
+    private Object parseMessage() {
+        if (JsonUtils.getClassFromCommand(command) == null) {
+            return null;
+        }
+        return JsonUtils.messageToClass(getText());
+    }
+}
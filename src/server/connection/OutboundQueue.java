@@ -0,0 +1,87 @@
+package server.connection;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multi-producer single-consumer queue for the outbound messages of one client.
+ * Any thread may offer (handlers of other clients, heartbeats, timeouts), only the writer of the client polls.
+ * Offering never blocks: when the queue is full the offer fails and the caller decides what to do.
+ *
+ * @param <E> the type of the queued elements
+ */
+public class OutboundQueue<E> {
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    /**
+     * Creates a queue that holds at least the given number of elements (rounded up to a power of two).
+     * @param capacity the minimum capacity
+     */
+    public OutboundQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds an element to the queue. Safe to call from any thread.
+     * @param element the element to add, not null
+     * @return true if the element was added, false if the queue is full
+     */
+    public boolean offer(E element) {
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() > mask) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+
+        buffer.lazySet((int) index & mask, element);
+        return true;
+    }
+
+    /**
+     * Removes the oldest element. Must only be called by the single consumer.
+     * @return the oldest element or null if the queue is empty
+     */
+    public E poll() {
+        long index = consumerIndex.get();
+        int offset = (int) index & mask;
+
+        E element = buffer.get(offset);
+        if (element == null) {
+            if (index == producerIndex.get()) {
+                return null;
+            }
+            // a producer claimed the slot but did not store the element yet
+            do {
+                Thread.onSpinWait();
+                element = buffer.get(offset);
+            } while (element == null);
+        }
+
+        buffer.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+        return element;
+    }
+
+    /**
+     * Checks if the queue is empty.
+     * @return true if no element is queued
+     */
+    public boolean isEmpty() {
+        return consumerIndex.get() == producerIndex.get();
+    }
+
+    /**
+     * Get the number of queued elements. Only an estimate while producers are active.
+     * @return the number of queued elements
+     */
+    public int size() {
+        return (int) Math.max(0, producerIndex.get() - consumerIndex.get());
+    }
+}
@@ -0,0 +1,73 @@
+package server.connection;
+
+import server.constants.ServerConfig;
+import shared.constants.ProtocolCommands;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What happens to an outbound message while its client is above the high water mark of its outbound queue.
+ * The policy per command is read from {@link ServerConfig#OVERFLOW_POLICIES}, commands that are not listed are
+ * always delivered. Only the messages fanned out to many clients (JOINED, LEFT, BROADCAST and PRESENCE) may have
+ * another policy, replies, PRIVATE messages, heartbeats and all other commands are always delivered.
+ */
+public enum OverflowPolicy {
+    /**
+     * Queue the message anyway, the client is disconnected if it stays too slow.
+     */
+    DELIVER,
+    /**
+     * Discard the message.
+     */
+    DROP,
+    /**
+     * Hold the message back until the client has caught up. A newer message with the same payload replaces it,
+     * so a JOINED followed by a LEFT of the same user only delivers the LEFT.
+     */
+    CONFLATE;
+
+    private static final Set<ProtocolCommands> FAN_OUT_COMMANDS = EnumSet.of(ProtocolCommands.JOINED,
+            ProtocolCommands.LEFT, ProtocolCommands.BROADCAST, ProtocolCommands.PRESENCE);
+    private static final Map<ProtocolCommands, OverflowPolicy> policies = new EnumMap<>(ProtocolCommands.class);
+
+    static {
+        for (String entry : ServerConfig.OVERFLOW_POLICIES.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid overflow policy: " + entry);
+            }
+
+            ProtocolCommands command = ProtocolCommands.valueOf(parts[0].trim());
+            OverflowPolicy policy = OverflowPolicy.valueOf(parts[1].trim());
+            if (policy != DELIVER && !FAN_OUT_COMMANDS.contains(command)) {
+                throw new IllegalArgumentException(command + " messages must always be delivered, only "
+                        + FAN_OUT_COMMANDS + " may have another overflow policy");
+            }
+            policies.put(command, policy);
+        }
+    }
+
+    /**
+     * Reads the configured policies, so an invalid configuration stops the server when it starts instead of when the
+     * first client overflows.
+     */
+    public static void load() {
+        // the policies are read when the class is initialized
+    }
+
+    /**
+     * Get the policy for a command.
+     * @param command the command of the outbound message
+     * @return the configured policy or {@link #DELIVER} if none is configured
+     */
+    public static OverflowPolicy forCommand(ProtocolCommands command) {
+        return policies.getOrDefault(command, DELIVER);
+    }
+}
@@ -0,0 +1,229 @@
+package server.connection;
+
+import server.ServerExecutors;
+import server.constants.ServerConfig;
+import server.errors.ErrorCode;
+import server.timeout.HashedWheelTimer;
+import shared.messages.model.server.Hangup;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Guards the outbound queue of one client against a client that does not read fast enough.
+ * The backlog is the number of messages and bytes that were queued but not written to the socket yet.
+ * While the backlog is below the high water marks every message is queued right away. Once a high water mark is
+ * exceeded the client is overflowing and the {@link OverflowPolicy} of each command decides whether a message is
+ * queued, dropped or held back. The client stops overflowing when the backlog is below both low water marks again,
+ * then the held back messages are queued. A client that overflows for longer than
+ * {@link ServerConfig#SLOW_CONSUMER_GRACE_PERIOD} gets a HANGUP and is disconnected.
+ * Held back messages are delivered after the messages queued in the meantime.
+ */
+public class SlowConsumerGuard {
+    private final ClientConnection connection;
+    private final OutboundQueue<OutboundFrame> outbound;
+    private final ClientTransport transport;
+    private final DropStats dropStats = new DropStats();
+    private final AtomicLong queuedMessages = new AtomicLong();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    // a ReentrantLock instead of synchronized, so a virtual thread is never pinned to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, OutboundFrame> heldBack = new LinkedHashMap<>();
+    private volatile boolean overflowing;
+    private long overflowingSince;
+    private boolean stopped;
+    private HashedWheelTimer.Timeout checkTimeout;
+
+    public SlowConsumerGuard(ClientConnection connection, OutboundQueue<OutboundFrame> outbound, ClientTransport transport) {
+        this.connection = connection;
+        this.outbound = outbound;
+        this.transport = transport;
+    }
+
+    /**
+     * Offers a message for the client.
+     * @param frame the message to send
+     * @return true if the message was queued or held back, false if it was dropped
+     */
+    public boolean offer(OutboundFrame frame) {
+        if (!overflowing && !isAboveHighWater()) {
+            return enqueue(frame);
+        }
+
+        lock.lock();
+        try {
+            if (stopped) {
+                return false;
+            }
+
+            if (!overflowing) {
+                if (!isAboveHighWater()) {
+                    return enqueue(frame);
+                }
+                startOverflowing();
+            }
+
+            switch (OverflowPolicy.forCommand(frame.getCommand())) {
+                case DROP:
+                    dropStats.recordDrop(DropStats.Reason.POLICY);
+                    return false;
+                case CONFLATE:
+                    if (heldBack.put(frame.getPayload(), frame) != null) {
+                        dropStats.recordDrop(DropStats.Reason.CONFLATED);
+                    }
+                    return true;
+                default:
+                    return enqueue(frame);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the guard when the connection is closed. Messages that are still held back are counted as dropped.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            stopped = true;
+            cancelCheck();
+
+            for (int i = 0; i < heldBack.size(); i++) {
+                dropStats.recordDrop(DropStats.Reason.CLOSED);
+            }
+            heldBack.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the drop counters of this client.
+     * @return the drop statistics
+     */
+    public DropStats getDropStats() {
+        return dropStats;
+    }
+
+    private boolean enqueue(OutboundFrame frame) {
+        if (!outbound.offer(frame)) {
+            dropStats.recordDrop(DropStats.Reason.QUEUE_FULL);
+            evictQueueFull();
+            return false;
+        }
+
+        queuedMessages.incrementAndGet();
+        // frames queued concurrently with a wire format switch may be counted in the other format, a few bytes at most
+        queuedBytes.addAndGet(frame.getBytes(connection.getWireFormat()).length);
+        transport.signal();
+        return true;
+    }
+
+    /**
+     * Disconnects the client after its queue ran full. Closing the connection notifies other clients (e.g. the
+     * opponent of a game), which takes their guard locks, so it is handed off instead of running under this lock.
+     */
+    private void evictQueueFull() {
+        lock.lock();
+        try {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            cancelCheck();
+            dropStats.recordEviction();
+        } finally {
+            lock.unlock();
+        }
+
+        System.err.println("Outbound queue of " + connection.getClientAddress() + ":" + connection.getClientPort() + " is full, disconnecting");
+        ServerExecutors.clientExecutor().execute(connection::closeConnection);
+    }
+
+    private void startOverflowing() {
+        overflowing = true;
+        overflowingSince = System.nanoTime();
+        scheduleCheck();
+    }
+
+    private void scheduleCheck() {
+        checkTimeout = ServerExecutors.timer().schedule(this::check, ServerConfig.SLOW_CONSUMER_CHECK_INTERVAL,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs periodically while the client is overflowing. Queues the held back messages once the client has caught up,
+     * or disconnects it once the grace period is over.
+     */
+    private void check() {
+        lock.lock();
+        try {
+            if (stopped) {
+                cancelCheck();
+                return;
+            }
+
+            if (isBelowLowWater()) {
+                overflowing = false;
+                cancelCheck();
+
+                Iterator<OutboundFrame> iterator = heldBack.values().iterator();
+                while (!stopped && iterator.hasNext()) {
+                    OutboundFrame frame = iterator.next();
+                    iterator.remove();
+                    enqueue(frame);
+                }
+                return;
+            }
+
+            if (System.nanoTime() - overflowingSince < TimeUnit.MILLISECONDS.toNanos(ServerConfig.SLOW_CONSUMER_GRACE_PERIOD)) {
+                scheduleCheck();
+                return;
+            }
+
+            cancelCheck();
+            dropStats.recordEviction();
+        } finally {
+            lock.unlock();
+        }
+
+        // the timer only keeps the time, closing the connection is handed off
+        ServerExecutors.clientExecutor().execute(() -> {
+            try {
+                connection.sendMessage(new Hangup(ErrorCode.SLOW_CONSUMER.getCode()));
+            } finally {
+                connection.closeConnection();
+            }
+        });
+    }
+
+    private void cancelCheck() {
+        if (checkTimeout != null) {
+            checkTimeout.cancel();
+            checkTimeout = null;
+        }
+    }
+
+    private boolean isAboveHighWater() {
+        return getBacklogMessages() > ServerConfig.SLOW_CONSUMER_HIGH_WATER_MESSAGES
+                || getBacklogBytes() > ServerConfig.SLOW_CONSUMER_HIGH_WATER_BYTES;
+    }
+
+    private boolean isBelowLowWater() {
+        return getBacklogMessages() <= ServerConfig.SLOW_CONSUMER_LOW_WATER_MESSAGES
+                && getBacklogBytes() <= ServerConfig.SLOW_CONSUMER_LOW_WATER_BYTES;
+    }
+
+    private long getBacklogMessages() {
+        return queuedMessages.get() - transport.getWriteStats().getMessages();
+    }
+
+    private long getBacklogBytes() {
+        return queuedBytes.get() - transport.getWriteStats().getBytes();
+    }
+}
@@ -0,0 +1,203 @@
+package server.connection;
+
+import server.ServerExecutors;
+import server.constants.ServerConfig;
+import server.jfr.OutboundFlushEvent;
+import shared.connection.CompressionStats;
+import shared.connection.StreamCompressor;
+import shared.constants.WireFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ClientTransport} for a blocking socket. A dedicated virtual thread drains the outbound queue and is the
+ * only thread that ever writes to the socket, so a client with a full TCP window only blocks its own writer.
+ * The writer coalesces all queued lines into one batch and writes it with a single call once the queue is drained,
+ * the batch is full ({@link ServerConfig#WRITE_BATCH_BYTES}) or the oldest line in the batch has waited
+ * {@link ServerConfig#WRITE_BATCH_DEADLINE_MICROS}.
+ * Used by the thread per connection and virtual thread execution modes.
+ */
+public class SocketTransport implements ClientTransport {
+    private final Socket socket;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final WriteStats writeStats = new WriteStats();
+    private byte[] batch = new byte[4096];
+    private int batchLength;
+    private int batchMessages;
+    private long batchStarted;
+    // only used by the writer, switched in queue order by the frame that completes the negotiation
+    private WireFormat wireFormat = WireFormat.TEXT;
+    private final CompressionStats compressionStats = new CompressionStats();
+    private StreamCompressor compressor;
+    private OutboundQueue<OutboundFrame> outbound;
+    private Thread writer;
+    private volatile boolean writerParked;
+
+    public SocketTransport(Socket socket) {
+        this.socket = socket;
+
+        try {
+            socket.setTcpNoDelay(ServerConfig.TCP_NO_DELAY);
+        } catch (SocketException e) {
+            System.err.println("Failed to set TCP_NODELAY: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Socket getSocket() {
+        return socket;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed.get() && !socket.isClosed();
+    }
+
+    @Override
+    public void start(OutboundQueue<OutboundFrame> outbound) {
+        this.outbound = outbound;
+        this.writer = Thread.ofVirtual().name("writer-" + socket.getPort()).start(this::writeLoop);
+    }
+
+    @Override
+    public void signal() {
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @Override
+    public WriteStats getWriteStats() {
+        return writeStats;
+    }
+
+    @Override
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (writer == null) {
+            closeSocket();
+            return;
+        }
+
+        // let the writer drain what is left, but do not wait forever for a client that stopped reading
+        LockSupport.unpark(writer);
+        ServerExecutors.timer().schedule(this::closeSocket, ServerConfig.CLOSE_DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes queued lines until the transport is closed and the queue is drained.
+     * Whenever the queue runs empty the pending batch is written, then the writer parks until it is signalled.
+     */
+    private void writeLoop() {
+        try (OutputStream out = socket.getOutputStream()) {
+            long deadlineNanos = TimeUnit.MICROSECONDS.toNanos(ServerConfig.WRITE_BATCH_DEADLINE_MICROS);
+
+            while (true) {
+                OutboundFrame frame = outbound.poll();
+                if (frame != null) {
+                    appendToBatch(frame);
+                    if (frame.isCompressedAfter() && compressor == null) {
+                        // the frame that starts the compression is the last one written as is
+                        writeBatch(out);
+                        compressor = new StreamCompressor(ServerConfig.COMPRESSION_LEVEL, compressionStats);
+                    } else if (batchLength >= ServerConfig.WRITE_BATCH_BYTES || System.nanoTime() - batchStarted >= deadlineNanos) {
+                        writeBatch(out);
+                    }
+                    continue;
+                }
+
+                writeBatch(out);
+                // a message queued right before the close, e.g. BYE_RESP, may have missed the poll above
+                if (closed.get() && outbound.isEmpty()) {
+                    break;
+                }
+
+                writerParked = true;
+                if (outbound.isEmpty() && !closed.get()) {
+                    LockSupport.park(this);
+                }
+                writerParked = false;
+            }
+        } catch (IOException e) {
+            // the client is gone, the reader notices it as well
+        } finally {
+            closeSocket();
+            if (compressor != null) {
+                compressor.end();
+            }
+        }
+    }
+
+    private void appendToBatch(OutboundFrame frame) {
+        byte[] bytes = frame.getBytes(wireFormat);
+        if (frame.getSwitchTo() != null) {
+            wireFormat = frame.getSwitchTo();
+        }
+
+        int required = batchLength + bytes.length;
+        if (required > batch.length) {
+            batch = Arrays.copyOf(batch, Math.max(required, batch.length * 2));
+        }
+
+        if (batchMessages == 0) {
+            batchStarted = System.nanoTime();
+        }
+
+        System.arraycopy(bytes, 0, batch, batchLength, bytes.length);
+        batchLength = required;
+        batchMessages++;
+    }
+
+    private void writeBatch(OutputStream out) throws IOException {
+        if (batchMessages == 0) {
+            return;
+        }
+
+        OutboundFlushEvent event = new OutboundFlushEvent();
+        event.begin();
+        int written;
+        if (compressor != null) {
+            ByteBuffer compressed = compressor.compress(batch, 0, batchLength);
+            written = compressed.limit();
+            out.write(compressed.array(), 0, written);
+        } else {
+            written = batchLength;
+            out.write(batch, 0, batchLength);
+        }
+        writeStats.recordFlush(batchMessages, batchLength);
+
+        if (event.shouldCommit()) {
+            event.clientPort = socket.getPort();
+            event.messages = batchMessages;
+            event.bytes = written;
+            event.compressed = compressor != null;
+            event.commit();
+        }
+        batchLength = 0;
+        batchMessages = 0;
+    }
+
+    private void closeSocket() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close client socket: " + e.getMessage());
+        }
+    }
+}
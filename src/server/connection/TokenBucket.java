@@ -0,0 +1,41 @@
+package server.connection;
+
+/**
+ * A token bucket that holds up to {@code capacity} tokens and is refilled with {@code ratePerSecond} tokens per second.
+ * Every acquired token allows one action, so the long term rate is limited while short bursts up to the capacity
+ * are still allowed.
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(long capacity, double ratePerSecond) {
+        if (capacity <= 0 || ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and rate must be positive");
+        }
+
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes one token from the bucket if there is one.
+     * @return true if a token was taken, false if the bucket is empty
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+
+        if (tokens < 1) {
+            return false;
+        }
+
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,61 @@
+package server.connection;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the messages, flushes and bytes written by the transports. Every transport has its own instance and every
+ * recorded flush is added to the {@link #GLOBAL} totals as well. The average messages per flush shows how many
+ * writes (system calls) the coalescing saves compared to writing each message on its own.
+ */
+public class WriteStats {
+    public static final WriteStats GLOBAL = new WriteStats();
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    /**
+     * Records one write of a batch of messages to the socket.
+     * @param messageCount the number of messages in the batch
+     * @param byteCount the number of bytes in the batch
+     */
+    public void recordFlush(int messageCount, long byteCount) {
+        add(messageCount, byteCount);
+        if (this != GLOBAL) {
+            GLOBAL.add(messageCount, byteCount);
+        }
+    }
+
+    private void add(int messageCount, long byteCount) {
+        messages.add(messageCount);
+        flushes.increment();
+        bytes.add(byteCount);
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * Get the average number of messages written per flush.
+     * @return the average messages per flush or 0 if nothing was flushed yet
+     */
+    public double getAverageMessagesPerFlush() {
+        long flushCount = flushes.sum();
+        return flushCount == 0 ? 0 : (double) messages.sum() / flushCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d message(s) in %d flush(es), %.1f per flush, %d bytes",
+                getMessages(), getFlushes(), getAverageMessagesPerFlush(), getBytes());
+    }
+}
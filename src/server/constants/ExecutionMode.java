@@ -0,0 +1,23 @@
+package server.constants;
+
+/**
+ * This enum represents the ways the server can execute client connections.
+ * Selected with the {@code server.executionMode} system property, see {@link ServerConfig#EXECUTION_MODE}.
+ */
+public enum ExecutionMode {
+    /**
+     * Every client gets its own platform thread that blocks on the socket.
+     */
+    THREAD_PER_CONNECTION,
+
+    /**
+     * Every client gets its own virtual thread from a shared executor. The handlers stay blocking,
+     * but an idle client only costs a parked virtual thread instead of a platform thread stack.
+     */
+    VIRTUAL_THREADS,
+
+    /**
+     * All clients are served by a small fixed set of selector based event loops.
+     */
+    EVENT_LOOP
+}
@@ -11,4 +11,50 @@ public class ServerConfig {
     public static final int PONG_TIMEOUT = 3_000;
     public static final int RPS_CHOICE_TIMEOUT = 10_000;
     public static final int FILE_TRANSFER_REQUEST_TIMEOUT = 10_000;
+    // precision and number of buckets of the timer wheel shared by heartbeats and request timeouts
+    public static final int TIMER_TICK = Integer.getInteger("server.timerTickMillis", 10);
+    public static final int TIMER_WHEEL_SIZE = Integer.getInteger("server.timerWheelSize", 512);
+
+    public static final ExecutionMode EXECUTION_MODE = ExecutionMode.valueOf(
+            System.getProperty("server.executionMode", ExecutionMode.THREAD_PER_CONNECTION.name()));
+    public static final int ACCEPTOR_THREADS = Integer.getInteger("server.acceptorThreads", 1);
+    public static final int EVENT_LOOP_THREADS = Integer.getInteger("server.eventLoopThreads",
+            Runtime.getRuntime().availableProcessors());
+    public static final int EVENT_LOOP_READ_BUFFER_SIZE = 16 * 1024;
+    public static final int MAX_FRAME_LENGTH = Integer.getInteger("server.maxFrameLength", 64 * 1024);
+    public static final int OUTBOUND_QUEUE_CAPACITY = Integer.getInteger("server.outboundQueueCapacity", 4096);
+    public static final int CLOSE_DRAIN_TIMEOUT = 2_000;
+    public static final boolean TCP_NO_DELAY = Boolean.parseBoolean(System.getProperty("server.tcpNoDelay", "true"));
+    public static final int WRITE_BATCH_BYTES = Integer.getInteger("server.writeBatchBytes", 64 * 1024);
+    public static final int WRITE_BATCH_DEADLINE_MICROS = Integer.getInteger("server.writeBatchDeadlineMicros", 1_000);
+    public static final int SLOW_CONSUMER_HIGH_WATER_MESSAGES = Integer.getInteger("server.highWaterMessages", 1_024);
+    public static final int SLOW_CONSUMER_LOW_WATER_MESSAGES = Integer.getInteger("server.lowWaterMessages", 256);
+    public static final int SLOW_CONSUMER_HIGH_WATER_BYTES = Integer.getInteger("server.highWaterBytes", 1024 * 1024);
+    public static final int SLOW_CONSUMER_LOW_WATER_BYTES = Integer.getInteger("server.lowWaterBytes", 256 * 1024);
+    public static final int SLOW_CONSUMER_GRACE_PERIOD = Integer.getInteger("server.slowConsumerGracePeriod", 5_000);
+    public static final int SLOW_CONSUMER_CHECK_INTERVAL = 100;
+    public static final int MAX_CONNECTIONS = Integer.getInteger("server.maxConnections", 10_000);
+    public static final int MAX_CONNECTIONS_PER_ADDRESS = Integer.getInteger("server.maxConnectionsPerAddress", 64);
+    public static final int ACCEPT_RATE = Integer.getInteger("server.acceptRate", 200);
+    public static final int ACCEPT_BURST = Integer.getInteger("server.acceptBurst", 500);
+    public static final String RATE_LIMITS = System.getProperty("server.rateLimits", "BROADCAST_REQ=5:20,PRIVATE_REQ=10:40");
+    // deflate level for clients that negotiate compression, 0 turns the DEFLATE feature off
+    public static final int COMPRESSION_LEVEL = Integer.getInteger("server.compressionLevel", 6);
+    // window in which JOINED and LEFT are collected for clients with the PRESENCE feature, 0 turns the feature off
+    public static final int PRESENCE_WINDOW = Integer.getInteger("server.presenceWindowMillis", 200);
+    public static final String OVERFLOW_POLICIES = System.getProperty("server.overflowPolicies", "JOINED=CONFLATE,LEFT=CONFLATE,BROADCAST=DROP");
+    // threshold per log type, e.g. MESSAGE=OFF, types that are not listed log everything
+    public static final String LOG_LEVELS = System.getProperty("server.logLevels", "");
+    public static final boolean LOG_CONSOLE = Boolean.parseBoolean(System.getProperty("server.logConsole", "true"));
+    public static final String LOG_FILE = System.getProperty("server.logFile");
+    public static final int LOG_BUFFER_SIZE = Integer.getInteger("server.logBufferSize", 8192);
+    // directory of the binary message audit, no audit is kept if not set
+    public static final String AUDIT_DIR = System.getProperty("server.auditDir");
+    public static final int AUDIT_SEGMENT_BYTES = Integer.getInteger("server.auditSegmentBytes", 64 * 1024 * 1024);
+    public static final long AUDIT_RETAIN_BYTES = Long.getLong("server.auditRetainBytes", 1024L * 1024 * 1024);
+    public static final long AUDIT_RETAIN_HOURS = Long.getLong("server.auditRetainHours", 7 * 24);
+    public static final int AUDIT_BUFFER_SIZE = Integer.getInteger("server.auditBufferSize", 65536);
+    // Prometheus metrics on http://<address>:<port>/metrics, 0 turns the endpoint off
+    public static final int METRICS_PORT = Integer.getInteger("server.metricsPort", 9404);
+    public static final String METRICS_ADDRESS = System.getProperty("server.metricsAddress", "127.0.0.1");
 }
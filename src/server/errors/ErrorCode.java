@@ -8,7 +8,9 @@ public enum ErrorCode {
     INVALID_USERNAME(5001, "Invalid username format"),
     ALREADY_LOGGED_IN(5002, "Already logged in"),
     NOT_LOGGED_IN(6000, "You are not logged in"),
+    THROTTLED(6001, "Too many messages, slow down"),
     NO_PONG_RECEIVED(7000, "No pong received"),
+    SLOW_CONSUMER(7001, "Not reading messages fast enough"),
     PONG_WITHOUT_PING(8000, "Pong without ping"),
     RECEIVER_NOT_FOUND(9001, "Receiver is not found"),
     INVALID_RECEIVER(9002, "You cannot interact with yourself"),
@@ -19,7 +21,8 @@ public enum ErrorCode {
     RESPONSE_TIMEOUT(10008, "Response timeout"),
     USER_UNEXPECTEDLY_DISCONNECTED(10009, "User unexpectedly disconnected"),
     COMMAND_NOT_EXPECTED(12001, "Command not expected"),
-    CHECKSUMS_NOT_EQUAL(12002, "Checksums not matching");
+    CHECKSUMS_NOT_EQUAL(12002, "Checksums not matching"),
+    FEATURES_ALREADY_NEGOTIATED(13001, "Features can only be negotiated once, before logging in");
 
     private final int code;
     private final String explanation;
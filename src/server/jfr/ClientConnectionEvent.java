@@ -0,0 +1,32 @@
+package server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A client that connected to or disconnected from the chat server.
+ */
+@Name("chat.ClientConnection")
+@Label("Client Connection")
+@Category({"Chat", "Connection"})
+@Description("A client that connected or disconnected")
+public class ClientConnectionEvent extends jdk.jfr.Event {
+    @Label("Connected")
+    @Description("True for a connect, false for a disconnect")
+    public boolean connected;
+
+    @Label("Client Address")
+    public String clientAddress;
+
+    @Label("Client Port")
+    public int clientPort;
+
+    @Label("Username")
+    public String username;
+
+    @Label("Clients")
+    @Description("The number of connected clients afterwards")
+    public int clients;
+}
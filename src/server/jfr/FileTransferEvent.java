@@ -0,0 +1,42 @@
+package server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A file transfer session, from the moment both sides are connected until the file was relayed.
+ */
+@Name("chat.FileTransfer")
+@Label("File Transfer")
+@Category({"Chat", "File Transfer"})
+@Description("A file relayed from the sender to the receiver")
+public class FileTransferEvent extends jdk.jfr.Event {
+    @Label("Session Id")
+    public String sessionId;
+
+    @Label("Sender")
+    public String sender;
+
+    @Label("Receiver")
+    public String receiver;
+
+    @Label("Filename")
+    public String filename;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Throughput")
+    @DataAmount
+    @Frequency
+    public long throughput;
+
+    @Label("Completed")
+    @Description("False if the transfer failed")
+    public boolean completed;
+}
@@ -0,0 +1,35 @@
+package server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A message that was received, parsed and dispatched to its handler. The duration of the event covers parsing,
+ * filtering and the handler, the time spent in the handler alone is {@link #handlerDuration}.
+ */
+@Name("chat.MessageReceived")
+@Label("Message Received")
+@Category({"Chat", "Protocol"})
+@Description("A message received from a connection and dispatched to its handler")
+public class MessageReceivedEvent extends jdk.jfr.Event {
+    @Label("Command")
+    public String command;
+
+    @Label("Username")
+    public String username;
+
+    @Label("Frame Length")
+    @DataAmount
+    public int frameLength;
+
+    @Label("Binary")
+    public boolean binary;
+
+    @Label("Handler Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long handlerDuration;
+}
@@ -0,0 +1,28 @@
+package server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A message offered to the outbound queue of a client.
+ */
+@Name("chat.OutboundEnqueue")
+@Label("Outbound Enqueue")
+@Category({"Chat", "Protocol"})
+@Description("A message offered to the outbound queue of a client")
+public class OutboundEnqueueEvent extends jdk.jfr.Event {
+    @Label("Command")
+    public String command;
+
+    @Label("Username")
+    public String username;
+
+    @Label("Accepted")
+    @Description("False if the slow consumer guard dropped the message or the client is disconnected")
+    public boolean accepted;
+
+    @Label("Queue Size")
+    public int queueSize;
+}
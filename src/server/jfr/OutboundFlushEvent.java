@@ -0,0 +1,30 @@
+package server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A write of a batch of queued messages to a client socket, the duration is the time spent writing.
+ */
+@Name("chat.OutboundFlush")
+@Label("Outbound Flush")
+@Category({"Chat", "Protocol"})
+@Description("A batch of queued messages written to a client socket")
+public class OutboundFlushEvent extends jdk.jfr.Event {
+    @Label("Client Port")
+    public int clientPort;
+
+    @Label("Messages")
+    @Description("The messages in the batch, 0 if the socket only took part of the batch")
+    public int messages;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Compressed")
+    public boolean compressed;
+}
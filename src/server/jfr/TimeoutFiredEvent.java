@@ -0,0 +1,22 @@
+package server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A timeout of a session that fired, e.g. a transfer request that was not answered in time.
+ */
+@Name("chat.TimeoutFired")
+@Label("Timeout Fired")
+@Category({"Chat", "Timeout"})
+@Description("A session timeout that fired, the duration covers its handler")
+public class TimeoutFiredEvent extends jdk.jfr.Event {
+    @Label("Handler")
+    public String handler;
+
+    @Label("Expired")
+    @Description("False if the condition was fulfilled in time and the handler was not called")
+    public boolean expired;
+}
@@ -0,0 +1,120 @@
+package server.logger;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drains a {@link LogRingBuffer} on a background thread and writes the entries to the {@link LogSink}s.
+ * The sinks are flushed once the buffer is empty, so a burst of entries costs a single flush.
+ * The thread parks while the buffer is empty and is woken by the producers.
+ */
+class AsyncLogWriter implements Runnable {
+    private static final long MAX_PARK_NANOS = 100_000_000;
+
+    private final String name;
+    private final LogRingBuffer ring;
+    private final List<LogSink> sinks;
+    private final LongAdder dropped = new LongAdder();
+    private final Consumer<LogEntry> writeEntry = this::write;
+    private final Thread thread;
+    private volatile boolean parked;
+    private volatile boolean running = true;
+    private long reportedDropped;
+
+    AsyncLogWriter(String name, LogRingBuffer ring, List<LogSink> sinks) {
+        this.name = name;
+        this.ring = ring;
+        this.sinks = sinks;
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
+    }
+
+    /**
+     * Publishes a filled slot and wakes the writer if it is parked.
+     * @param sequence the claimed sequence
+     */
+    void publish(long sequence) {
+        ring.publish(sequence);
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Counts an entry that was not logged because the buffer was full.
+     */
+    void drop() {
+        dropped.increment();
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (ring.drain(writeEntry) > 0) {
+                continue;
+            }
+
+            flush();
+            parked = true;
+            // publishers check the flag after publishing, so an entry published before it was set is seen here
+            if (!ring.hasPublished() && running) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+            parked = false;
+        }
+
+        ring.drain(writeEntry);
+        flush();
+    }
+
+    /**
+     * Stops the writer once it wrote the remaining entries, called when the JVM shuts down.
+     */
+    private void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(LogEntry entry) {
+        for (LogSink sink : sinks) {
+            try {
+                sink.write(entry);
+            } catch (IOException e) {
+                System.err.println("Failed to write log entry: " + e.getMessage());
+            }
+        }
+    }
+
+    private void flush() {
+        long droppedNow = dropped.sum();
+        if (droppedNow != reportedDropped) {
+            System.err.println((droppedNow - reportedDropped) + " entries dropped by " + name + ", its buffer was full");
+            reportedDropped = droppedNow;
+        }
+
+        for (LogSink sink : sinks) {
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                System.err.println("Failed to flush log: " + e.getMessage());
+            }
+        }
+    }
+}
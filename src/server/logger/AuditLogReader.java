@@ -0,0 +1,153 @@
+package server.logger;
+
+import shared.constants.ProtocolCommands;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints the records of the segments written by an {@link AuditLogSink} in the text format of the {@link ServerLogger}.
+ * <p>
+ * Usage: {@code AuditLogReader [--user <username>] [--command <command>] [--time] <directory or segment>...}
+ * <ul>
+ *     <li>--user: only the records of a user</li>
+ *     <li>--command: only the records of a command, e.g. BROADCAST_REQ</li>
+ *     <li>--time: prefix every record with its timestamp</li>
+ * </ul>
+ * A directory is read segment by segment, oldest first.
+ */
+public class AuditLogReader {
+    private static final ProtocolCommands[] COMMANDS = ProtocolCommands.values();
+
+    private final String user;
+    private final ProtocolCommands command;
+    private final boolean time;
+    private final BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    private final TextLogSink sink = new TextLogSink(out, false);
+
+    public AuditLogReader(String user, ProtocolCommands command, boolean time) {
+        this.user = user;
+        this.command = command;
+        this.time = time;
+    }
+
+    public static void main(String[] args) {
+        String user = null;
+        ProtocolCommands command = null;
+        boolean time = false;
+        List<File> files = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--user" -> user = args[++i];
+                    case "--command" -> command = ProtocolCommands.valueOf(args[++i]);
+                    case "--time" -> time = true;
+                    default -> files.add(new File(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            files.clear();
+        }
+
+        if (files.isEmpty()) {
+            System.err.println("Usage: AuditLogReader [--user <username>] [--command <command>] [--time] <directory or segment>...");
+            System.exit(1);
+        }
+
+        AuditLogReader reader = new AuditLogReader(user, command, time);
+        try {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    for (File segment : AuditLogSink.listSegments(file)) {
+                        reader.read(segment);
+                    }
+                } else {
+                    reader.read(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read audit log: " + e.getMessage());
+        } finally {
+            reader.flush();
+        }
+    }
+
+    /**
+     * Prints the records of a segment that match the filters.
+     * @param file the segment file
+     * @throws IOException if the file can not be read or is not a segment
+     */
+    public void read(File file) throws IOException {
+        ByteBuffer segment;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (segment.remaining() < AuditLogSink.HEADER_LENGTH || segment.getInt() != AuditLogSink.MAGIC) {
+            throw new IOException(file + " is not an audit segment");
+        }
+        int version = segment.getInt();
+        if (version != AuditLogSink.VERSION) {
+            throw new IOException(file + " has unsupported version " + version);
+        }
+
+        while (segment.remaining() >= Integer.BYTES) {
+            int length = segment.getInt();
+            if (length <= 0 || length > segment.remaining()) {
+                // the end of the written records
+                return;
+            }
+            int next = segment.position() + length;
+            print(segment);
+            segment.position(next);
+        }
+    }
+
+    private void print(ByteBuffer record) throws IOException {
+        long timestamp = record.getLong();
+        byte commandOrdinal = record.get();
+        String direction = AuditLogSink.getString(record);
+        String address = AuditLogSink.getString(record);
+        String username = AuditLogSink.getString(record);
+        int port = record.getShort() & 0xFFFF;
+        byte[] payload = new byte[record.getInt()];
+        record.get(payload);
+
+        ProtocolCommands recordCommand = commandOrdinal < 0 || commandOrdinal >= COMMANDS.length ? null : COMMANDS[commandOrdinal];
+        if ((user != null && !user.equals(username)) || (command != null && command != recordCommand)) {
+            return;
+        }
+
+        String text = new String(payload, StandardCharsets.UTF_8);
+        String line = recordCommand == null ? text : text.isEmpty() ? recordCommand.name() : recordCommand.name() + " " + text;
+        if (time) {
+            out.write(Instant.ofEpochMilli(timestamp) + " ");
+        }
+        sink.write(new LogEntry.Builder()
+                .logType(ServerLogger.LogType.MESSAGE)
+                .clientAddress(address)
+                .clientPort(port)
+                .username(username)
+                .direction(direction)
+                .message(line)
+                .build());
+    }
+
+    private void flush() {
+        try {
+            sink.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to write: " + e.getMessage());
+        }
+    }
+}
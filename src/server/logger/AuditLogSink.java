@@ -0,0 +1,216 @@
+package server.logger;
+
+import shared.constants.ProtocolCommands;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A {@link LogSink} that keeps an audit of the traffic: every {@link ServerLogger.LogType#MESSAGE} entry is appended
+ * as a compact binary record to a memory-mapped segment file. Segments have a fixed size, once a record does not fit
+ * the next segment is started and old segments are deleted when the segments together grow beyond the retained size
+ * or are older than the retained age. The records can be read back with {@link AuditLogReader}.
+ * <p>
+ * The {@link ServerLogger} feeds the sink through a buffer and a thread of its own, independent of the log level of
+ * {@link ServerLogger.LogType#MESSAGE}. Once written, a record is in the page cache and survives a crash of the server
+ * process, records that are still in the buffer do not. If the buffer is full, records are dropped and counted in
+ * the {@code chat_audit_records_dropped_total} metric.
+ * <p>
+ * A segment starts with the {@link #MAGIC} and the {@link #VERSION} as ints, followed by the records. A record is an
+ * int with the length of the rest of the record, which is:
+ * <ul>
+ *     <li>the timestamp in milliseconds as a long</li>
+ *     <li>the ordinal of the {@link ProtocolCommands} as a byte, -1 if the line had no known command</li>
+ *     <li>the direction, the client address and the username as strings</li>
+ *     <li>the client port as a short</li>
+ *     <li>the payload, the part of the line after the command or the whole line if the command is unknown, as an
+ *     int length followed by the UTF-8 bytes</li>
+ * </ul>
+ * A string is a short length followed by the UTF-8 bytes, -1 for null. A record length of 0 marks the end of a
+ * segment, the unused rest of a segment is zero filled.
+ */
+public class AuditLogSink implements LogSink {
+    public static final int MAGIC = 0x41554454; // "AUDT"
+    public static final int VERSION = 1;
+    public static final String SEGMENT_PREFIX = "audit-";
+    public static final String SEGMENT_SUFFIX = ".seg";
+    static final int HEADER_LENGTH = 8;
+    static final byte UNKNOWN_COMMAND = -1;
+
+    private final File directory;
+    private final int segmentBytes;
+    private final long retainBytes;
+    private final long retainMillis;
+    private MappedByteBuffer segment;
+    private long segmentSequence;
+
+    /**
+     * Creates the directory if needed and starts a new segment.
+     * @param directory the directory of the segment files
+     * @param segmentBytes the size of a segment file
+     * @param retainBytes the maximum size of all segments together
+     * @param retainMillis the maximum age of a segment
+     * @throws IOException if the first segment can not be created
+     */
+    public AuditLogSink(File directory, int segmentBytes, long retainBytes, long retainMillis) throws IOException {
+        if (segmentBytes <= HEADER_LENGTH) {
+            throw new IllegalArgumentException("Audit segment size must be larger than " + HEADER_LENGTH);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create audit directory " + directory);
+        }
+
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retainBytes = retainBytes;
+        this.retainMillis = retainMillis;
+        roll();
+    }
+
+    @Override
+    public void write(LogEntry entry) throws IOException {
+        if (entry.getLogType() != ServerLogger.LogType.MESSAGE) {
+            return;
+        }
+
+        String line = entry.getMessage();
+        if (line == null) {
+            line = "";
+        }
+
+        byte command = UNKNOWN_COMMAND;
+        String payload = line;
+        int space = line.indexOf(' ');
+        ProtocolCommands protocolCommand = commandOf(space == -1 ? line : line.substring(0, space));
+        if (protocolCommand != null) {
+            command = (byte) protocolCommand.ordinal();
+            payload = space == -1 ? "" : line.substring(space + 1);
+        }
+
+        byte[] direction = bytesOf(entry.getDirection());
+        byte[] address = bytesOf(entry.getClientAddress());
+        byte[] username = bytesOf(entry.getUsername());
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        int length = Long.BYTES + 1 + stringLength(direction) + stringLength(address) + stringLength(username)
+                + Short.BYTES + Integer.BYTES + payloadBytes.length;
+
+        if (Integer.BYTES + length > segmentBytes - HEADER_LENGTH) {
+            System.err.println("Audit record of " + length + " bytes does not fit a segment, skipped");
+            return;
+        }
+        // the end marker of the segment must still fit behind the record
+        if (segment.remaining() < Integer.BYTES + length + Integer.BYTES) {
+            roll();
+        }
+
+        segment.putInt(length);
+        segment.putLong(entry.getTimestamp());
+        segment.put(command);
+        putString(direction);
+        putString(address);
+        putString(username);
+        segment.putShort((short) entry.getClientPort());
+        segment.putInt(payloadBytes.length);
+        segment.put(payloadBytes);
+    }
+
+    @Override
+    public void flush() {
+        // the records are in the page cache already, the operating system writes them back
+    }
+
+    /**
+     * Starts a new segment and deletes the segments that are no longer retained.
+     */
+    private void roll() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+
+        File file = new File(directory, String.format("%s%013d-%d%s", SEGMENT_PREFIX, System.currentTimeMillis(),
+                segmentSequence++, SEGMENT_SUFFIX));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+
+        deleteExpiredSegments(file);
+    }
+
+    private void deleteExpiredSegments(File current) {
+        File[] segments = listSegments(directory);
+        long total = 0;
+        long oldest = System.currentTimeMillis() - retainMillis;
+        // newest first, so the oldest segments are the ones beyond the retained size
+        for (int i = segments.length - 1; i >= 0; i--) {
+            File file = segments[i];
+            total += file.length();
+            if (!file.equals(current) && (total > retainBytes || file.lastModified() < oldest) && !file.delete()) {
+                System.err.println("Failed to delete audit segment " + file);
+            }
+        }
+    }
+
+    /**
+     * Lists the segment files of a directory.
+     * @param directory the directory of the segment files
+     * @return the segments, oldest first
+     */
+    public static File[] listSegments(File directory) {
+        File[] segments = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments, Comparator.comparing(File::getName));
+        return segments;
+    }
+
+    private static ProtocolCommands commandOf(String name) {
+        try {
+            return ProtocolCommands.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringLength(byte[] bytes) {
+        return Short.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    private void putString(byte[] bytes) {
+        if (bytes == null) {
+            segment.putShort((short) -1);
+            return;
+        }
+        segment.putShort((short) bytes.length);
+        segment.put(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #putString(byte[])}.
+     * @param buffer the buffer positioned at the string
+     * @return the string or null
+     */
+    static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
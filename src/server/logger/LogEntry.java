@@ -1,22 +1,35 @@
 package server.logger;
 
+import java.util.function.Supplier;
+
 /**
  * Represents a log entry in the server log.
- * Can build a log entry with a builder pattern.
+ * Can build a log entry with a builder pattern. The entries in the log buffer of the {@link ServerLogger} are
+ * preallocated and reused, so an entry handed to a {@link LogSink} is only valid during the call.
+ * The message of an entry may be a {@link Supplier}, it is only rendered when the entry is written.
  */
 public class LogEntry {
-    private final ServerLogger.LogType logType;
-    private final String clientAddress;
-    private final int clientPort;
-    private final String username;
-    private final String direction;
-    private final String color;
-    private final String message;
-    private final int clientCount;
-    private final int userCount;
+    private ServerLogger.LogType logType;
+    private LogLevel level = LogLevel.INFO;
+    private String clientAddress;
+    private int clientPort;
+    private String username;
+    private String direction;
+    private String color;
+    private Object message;
+    private int clientCount;
+    private int userCount;
+    private long timestamp;
+
+    /**
+     * Creates an empty slot of the log buffer.
+     */
+    LogEntry() {
+    }
 
     private LogEntry(Builder builder) {
         this.logType = builder.logType;
+        this.level = builder.level;
         this.clientAddress = builder.clientAddress;
         this.clientPort = builder.clientPort;
         this.username = builder.username;
@@ -29,12 +42,13 @@ public class LogEntry {
 
     public static class Builder {
         private ServerLogger.LogType logType;
+        private LogLevel level = LogLevel.INFO;
         private String clientAddress;
         private int clientPort;
         private String username;
         private String direction;
         private String color;
-        private String message;
+        private Object message;
         private int clientCount;
         private int userCount;
 
@@ -43,6 +57,11 @@ public class LogEntry {
             return this;
         }
 
+        public Builder level(LogLevel level) {
+            this.level = level;
+            return this;
+        }
+
         public Builder clientAddress(String clientAddress) {
             this.clientAddress = clientAddress;
             return this;
@@ -68,6 +87,16 @@ public class LogEntry {
             return this;
         }
 
+        /**
+         * Sets a message that is only rendered by the thread that writes the log.
+         * @param message the supplier of the message, must be safe to call from another thread
+         * @return this builder
+         */
+        public Builder message(Supplier<String> message) {
+            this.message = message;
+            return this;
+        }
+
         public Builder clientCount(int clientCount) {
             this.clientCount = clientCount;
             return this;
@@ -88,10 +117,62 @@ public class LogEntry {
         }
     }
 
+    /**
+     * Fills a slot of the log buffer with a message entry.
+     */
+    void setMessage(String clientAddress, int clientPort, String username, String direction, Object message) {
+        this.logType = ServerLogger.LogType.MESSAGE;
+        this.level = LogLevel.INFO;
+        this.clientAddress = clientAddress;
+        this.clientPort = clientPort;
+        this.username = username;
+        this.direction = direction;
+        this.message = message;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Fills a slot of the log buffer with a copy of another entry.
+     */
+    void copyFrom(LogEntry other) {
+        this.logType = other.logType;
+        this.level = other.level;
+        this.clientAddress = other.clientAddress;
+        this.clientPort = other.clientPort;
+        this.username = other.username;
+        this.direction = other.direction;
+        this.color = other.color;
+        this.message = other.message;
+        this.clientCount = other.clientCount;
+        this.userCount = other.userCount;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Clears a slot of the log buffer once it was written, so it does not keep its message reachable.
+     */
+    void clear() {
+        this.logType = null;
+        this.level = LogLevel.INFO;
+        this.clientAddress = null;
+        this.clientPort = 0;
+        this.username = null;
+        this.direction = null;
+        this.color = null;
+        this.message = null;
+        this.clientCount = 0;
+        this.userCount = 0;
+        this.timestamp = 0;
+    }
+
     public ServerLogger.LogType getLogType() {
         return logType;
     }
 
+    public LogLevel getLevel() {
+        return level;
+    }
+
     public String getClientAddress() {
         return clientAddress;
     }
@@ -108,8 +189,15 @@ public class LogEntry {
         return direction;
     }
 
+    /**
+     * Get the message, a lazy message is rendered by this call.
+     * @return the message
+     */
     public String getMessage() {
-        return message;
+        if (message instanceof Supplier<?> supplier) {
+            return String.valueOf(supplier.get());
+        }
+        return message == null ? null : message.toString();
     }
 
     public int getClientCount() {
@@ -123,4 +211,12 @@ public class LogEntry {
     public String getColor() {
         return color;
     }
-}
\ No newline at end of file
+
+    /**
+     * Get the time the entry was handed to the {@link ServerLogger}.
+     * @return the time in milliseconds since the epoch or 0 if the entry was not logged
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
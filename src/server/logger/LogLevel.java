@@ -0,0 +1,21 @@
+package server.logger;
+
+/**
+ * The level of a log entry. Every {@link ServerLogger.LogType} has a threshold level, entries above it are not logged.
+ * The thresholds are read from {@link server.constants.ServerConfig#LOG_LEVELS}, e.g. {@code MESSAGE=OFF} turns
+ * the logging of every incoming and outgoing message off.
+ */
+public enum LogLevel {
+    /**
+     * Only usable as a threshold, nothing of the log type is logged.
+     */
+    OFF,
+    /**
+     * Errors, e.g. a client connection that failed.
+     */
+    ERROR,
+    /**
+     * Regular events, e.g. messages, connects and disconnects.
+     */
+    INFO
+}
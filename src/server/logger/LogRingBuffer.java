@@ -0,0 +1,103 @@
+package server.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded ring of preallocated {@link LogEntry} slots with many producers and a single consumer.
+ * A producer claims the next sequence, fills the slot of that sequence and publishes it. The consumer reads the
+ * published slots in sequence order and clears them for reuse, so logging an entry allocates nothing.
+ * When every slot is in use {@link #claim()} fails instead of waiting, logging must never block the caller.
+ */
+class LogRingBuffer {
+    private final LogEntry[] entries;
+    private final int mask;
+    // the sequence that was last published in each slot
+    private final AtomicLongArray published;
+    private final AtomicLong nextClaim = new AtomicLong();
+    // written by the consumer only
+    private volatile long nextRead;
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two
+     */
+    LogRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Log buffer size must be positive");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+
+        entries = new LogEntry[size];
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            entries[i] = new LogEntry();
+            published.set(i, -1);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Claims the next slot. The slot must be filled with {@link #get(long)} and then published.
+     * @return the sequence of the slot or -1 if the buffer is full
+     */
+    long claim() {
+        while (true) {
+            long sequence = nextClaim.get();
+            if (sequence - nextRead >= entries.length) {
+                return -1;
+            }
+            if (nextClaim.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Get the slot of a claimed sequence.
+     * @param sequence the claimed sequence
+     * @return the entry to fill
+     */
+    LogEntry get(long sequence) {
+        return entries[(int) sequence & mask];
+    }
+
+    /**
+     * Hands a filled slot to the consumer.
+     * @param sequence the claimed sequence
+     */
+    void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Checks if the next entry to read was published. Only called by the consumer.
+     * @return true if {@link #drain(Consumer)} would read at least one entry
+     */
+    boolean hasPublished() {
+        long sequence = nextRead;
+        return published.get((int) sequence & mask) == sequence;
+    }
+
+    /**
+     * Passes every published entry in sequence order to the consumer and frees the slots. Stops at the first slot
+     * that was claimed but not yet published. Only called by the single consumer thread.
+     * @param consumer the consumer of the entries, must not keep a reference to them
+     * @return the number of entries read
+     */
+    int drain(Consumer<LogEntry> consumer) {
+        long sequence = nextRead;
+        int count = 0;
+        while (published.get((int) sequence & mask) == sequence) {
+            LogEntry entry = entries[(int) sequence & mask];
+            try {
+                consumer.accept(entry);
+            } finally {
+                entry.clear();
+                nextRead = ++sequence;
+            }
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,22 @@
+package server.logger;
+
+import java.io.IOException;
+
+/**
+ * A destination of the server log, e.g. the console or a file. Sinks are only called by the single thread
+ * that drains the log, so they do not have to be thread safe.
+ */
+public interface LogSink {
+    /**
+     * Writes an entry. The entry is reused once the call returns, so a sink must not keep a reference to it.
+     * @param entry the entry to write
+     * @throws IOException if writing fails
+     */
+    void write(LogEntry entry) throws IOException;
+
+    /**
+     * Flushes the written entries, called whenever the log has been drained.
+     * @throws IOException if flushing fails
+     */
+    void flush() throws IOException;
+}
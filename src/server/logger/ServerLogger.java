@@ -1,39 +1,203 @@
 package server.logger;
 
 import server.connection.ClientRegistry;
+import server.constants.ServerConfig;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The ServerLogger class is responsible for logging messages to the console. It is used to log messages, heartbeats,
- * client counts, and custom messages.
+ * client counts, and custom messages. Messages can also be kept in a binary audit, see {@link AuditLogSink}.
+ * Logging never blocks the caller: entries are copied into a preallocated {@link LogRingBuffer} and written to the
+ * {@link LogSink}s by a background thread. An entry is dropped if the buffer is full.
+ * Every {@link LogType} has a {@link LogLevel} threshold, callers on a hot path check {@link #isEnabled(LogType)}
+ * before they build anything for an entry. The audit has a buffer and a thread of its own and records every
+ * message regardless of the threshold of {@link LogType#MESSAGE}, so turning the console output off for speed
+ * does not turn the audit off, and a burst of console output does not crowd out audit records.
  */
 public class ServerLogger {
     public enum LogType {
         MESSAGE, HEARTBEAT, CLIENT_USER_COUNT, CUSTOM
     }
 
+    private static final LogLevel[] thresholds = new LogLevel[LogType.values().length];
+    private static final LogRingBuffer ring = new LogRingBuffer(ServerConfig.LOG_BUFFER_SIZE);
+    private static final AsyncLogWriter writer;
+    // null if no audit is kept
+    private static final LogRingBuffer auditRing;
+    private static final AsyncLogWriter auditWriter;
+
+    static {
+        Arrays.fill(thresholds, LogLevel.INFO);
+        for (String entry : ServerConfig.LOG_LEVELS.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid log level: " + entry);
+            }
+            thresholds[LogType.valueOf(parts[0].trim()).ordinal()] = LogLevel.valueOf(parts[1].trim());
+        }
+
+        List<LogSink> sinks = new ArrayList<>();
+        if (ServerConfig.LOG_CONSOLE) {
+            sinks.add(new TextLogSink(new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8)), true));
+        }
+        if (ServerConfig.LOG_FILE != null) {
+            try {
+                sinks.add(new TextLogSink(new BufferedWriter(new FileWriter(ServerConfig.LOG_FILE, StandardCharsets.UTF_8, true)), false));
+            } catch (IOException e) {
+                System.err.println("Failed to open log file " + ServerConfig.LOG_FILE + ": " + e.getMessage());
+            }
+        }
+
+        writer = new AsyncLogWriter("server-logger", ring, List.copyOf(sinks));
+        writer.start();
+
+        AuditLogSink auditSink = null;
+        if (ServerConfig.AUDIT_DIR != null) {
+            try {
+                auditSink = new AuditLogSink(new File(ServerConfig.AUDIT_DIR), ServerConfig.AUDIT_SEGMENT_BYTES,
+                        ServerConfig.AUDIT_RETAIN_BYTES, TimeUnit.HOURS.toMillis(ServerConfig.AUDIT_RETAIN_HOURS));
+            } catch (IOException e) {
+                System.err.println("Failed to open audit log " + ServerConfig.AUDIT_DIR + ": " + e.getMessage());
+            }
+        }
+        if (auditSink != null) {
+            auditRing = new LogRingBuffer(ServerConfig.AUDIT_BUFFER_SIZE);
+            auditWriter = new AsyncLogWriter("server-audit", auditRing, List.of(auditSink));
+            auditWriter.start();
+        } else {
+            auditRing = null;
+            auditWriter = null;
+        }
+    }
+
+    /**
+     * Checks if regular entries of a log type are logged.
+     * @param logType the log type
+     * @return true if {@link LogLevel#INFO} entries of the type are logged
+     */
+    public static boolean isEnabled(LogType logType) {
+        return isEnabled(logType, LogLevel.INFO);
+    }
+
+    /**
+     * Checks if entries of a log type and level are logged.
+     * @param logType the log type
+     * @param level the level of the entry
+     * @return true if the level is within the threshold of the type
+     */
+    public static boolean isEnabled(LogType logType, LogLevel level) {
+        return level.compareTo(thresholds[logType.ordinal()]) <= 0;
+    }
+
+    /**
+     * Checks if messages are logged or audited. Callers check this before they build anything for
+     * {@link #logMessage(String, int, String, String, Object)}.
+     * @return true if {@link LogType#MESSAGE} entries are logged or an audit is kept
+     */
+    public static boolean isRecordingMessages() {
+        return auditWriter != null || isEnabled(LogType.MESSAGE);
+    }
+
     public static void log(LogEntry logEntry) {
-        String userPart = "(" + (logEntry.getUsername() == null ? "" : logEntry.getUsername()) + ")";
-        String color = logEntry.getColor() == null ? "" : logEntry.getColor();
-        String resetColor = "\u001B[0m"; // ANSI reset code
+        if (auditWriter != null && logEntry.getLogType() == LogType.MESSAGE) {
+            long sequence = auditRing.claim();
+            if (sequence < 0) {
+                auditWriter.drop();
+            } else {
+                auditRing.get(sequence).copyFrom(logEntry);
+                auditWriter.publish(sequence);
+            }
+        }
+        if (!isEnabled(logEntry.getLogType(), logEntry.getLevel())) {
+            return;
+        }
+
+        long sequence = ring.claim();
+        if (sequence < 0) {
+            writer.drop();
+            return;
+        }
+        ring.get(sequence).copyFrom(logEntry);
+        writer.publish(sequence);
+    }
+
+    /**
+     * Logs an incoming or outgoing message without building a {@link LogEntry}. Used for every message the server
+     * handles, callers should check {@link #isRecordingMessages()} first.
+     * @param clientAddress the address of the client
+     * @param clientPort the port of the client
+     * @param username the username of the client or null if not logged in
+     * @param direction the direction of the message, e.g. {@code -->} for incoming
+     * @param message the message or a {@link java.util.function.Supplier} that renders it when it is written
+     */
+    public static void logMessage(String clientAddress, int clientPort, String username, String direction, Object message) {
+        if (auditWriter != null) {
+            long sequence = auditRing.claim();
+            if (sequence < 0) {
+                auditWriter.drop();
+            } else {
+                auditRing.get(sequence).setMessage(clientAddress, clientPort, username, direction, message);
+                auditWriter.publish(sequence);
+            }
+        }
+        if (!isEnabled(LogType.MESSAGE)) {
+            return;
+        }
 
-        switch (logEntry.getLogType()) {
-            case MESSAGE:
-                System.out.printf("%s%s:%d %s %s %s %s%n", color, logEntry.getClientAddress(), logEntry.getClientPort(), userPart, logEntry.getDirection(), logEntry.getMessage(), resetColor);
-                break;
-            case CLIENT_USER_COUNT:
-                System.out.printf("%d client(s) / %d user(s)%n", logEntry.getClientCount(), logEntry.getUserCount());
-                break;
+        long sequence = ring.claim();
+        if (sequence < 0) {
+            writer.drop();
+            return;
         }
+        ring.get(sequence).setMessage(clientAddress, clientPort, username, direction, message);
+        writer.publish(sequence);
+    }
+
+    /**
+     * Get the number of entries that were dropped because the log buffer was full.
+     * @return the number of dropped entries
+     */
+    public static long getDropped() {
+        return writer.getDropped();
+    }
+
+    /**
+     * Get the number of audit records that were dropped because the audit buffer was full.
+     * @return the number of dropped audit records, 0 if no audit is kept
+     */
+    public static long getAuditDropped() {
+        return auditWriter == null ? 0 : auditWriter.getDropped();
     }
 
     /**
      * A helper method to log the client count. It never changes, so it's worth having a helper method for it.
      */
     public static void logClientCount(){
+        if (!isEnabled(LogType.CLIENT_USER_COUNT)) {
+            return;
+        }
+
         ServerLogger.log(new LogEntry.Builder()
                 .logType(ServerLogger.LogType.CLIENT_USER_COUNT)
                 .clientCount(ClientRegistry.getInstance().getTotalClients())
                 .userCount(ClientRegistry.getInstance().getLoggedInUsers())
                 .build());
     }
-}
\ No newline at end of file
+}
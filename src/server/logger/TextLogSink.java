@@ -0,0 +1,66 @@
+package server.logger;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A {@link LogSink} that writes every entry as a line of text. The line is formatted into a reused builder,
+ * so formatting an entry does not allocate apart from rendering its message.
+ */
+public class TextLogSink implements LogSink {
+    private static final String RESET_COLOR = "\u001B[0m"; // ANSI reset code
+
+    private final Writer writer;
+    private final boolean colored;
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * @param writer the writer to write the lines to, should be buffered
+     * @param colored true to color the lines with ANSI codes, e.g. for the console
+     */
+    public TextLogSink(Writer writer, boolean colored) {
+        this.writer = writer;
+        this.colored = colored;
+    }
+
+    @Override
+    public void write(LogEntry entry) throws IOException {
+        line.setLength(0);
+        String color = colored && entry.getColor() != null ? entry.getColor() : "";
+        String resetColor = colored ? RESET_COLOR : "";
+
+        switch (entry.getLogType()) {
+            case MESSAGE:
+                line.append(color).append(entry.getClientAddress()).append(':').append(entry.getClientPort()).append(' ');
+                appendUser(entry);
+                line.append(' ').append(entry.getDirection()).append(' ').append(entry.getMessage()).append(' ').append(resetColor);
+                break;
+            case CLIENT_USER_COUNT:
+                line.append(entry.getClientCount()).append(" client(s) / ").append(entry.getUserCount()).append(" user(s)");
+                break;
+            case CUSTOM:
+                line.append(color).append(entry.getClientAddress()).append(':').append(entry.getClientPort()).append(' ');
+                appendUser(entry);
+                line.append(' ').append(entry.getMessage()).append(resetColor);
+                break;
+            default:
+                return;
+        }
+
+        line.append(System.lineSeparator());
+        writer.append(line);
+    }
+
+    private void appendUser(LogEntry entry) {
+        line.append('(');
+        if (entry.getUsername() != null) {
+            line.append(entry.getUsername());
+        }
+        line.append(')');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+}
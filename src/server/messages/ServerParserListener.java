@@ -0,0 +1,110 @@
+package server.messages;
+
+import server.connection.ClientConnection;
+import server.constants.ServerConfig;
+import server.jfr.MessageReceivedEvent;
+import server.logger.LogEntry;
+import server.logger.LogLevel;
+import server.logger.ServerLogger;
+import server.metrics.ServerMetrics;
+import shared.constants.ConsoleColors;
+import shared.constants.ProtocolCommands;
+import shared.messages.handling.MessageParser;
+import shared.messages.handling.ParserListener;
+
+/**
+ * The server side of a {@link MessageParser}: logs the incoming messages of a client, records them in the
+ * {@link ServerMetrics} and as {@link MessageReceivedEvent}s, and answers messages that can not be parsed with
+ * UNKNOWN_COMMAND or PARSE_ERROR.
+ */
+public class ServerParserListener implements ParserListener {
+    private final ClientConnection clientConnection;
+
+    public ServerParserListener(ClientConnection clientConnection) {
+        this.clientConnection = clientConnection;
+    }
+
+    @Override
+    public int getMaxFrameLength() {
+        return ServerConfig.MAX_FRAME_LENGTH;
+    }
+
+    @Override
+    public void onBytesReceived(int bytes) {
+        ServerMetrics.getInstance().recordBytesReceived(bytes);
+    }
+
+    @Override
+    public boolean isLoggingMessages() {
+        return ServerLogger.isRecordingMessages();
+    }
+
+    @Override
+    public void logMessage(Object rawMessage) {
+        ServerLogger.logMessage(clientConnection.getClientAddress(), clientConnection.getClientPort(),
+                clientConnection.getUsername(), "-->", rawMessage);
+    }
+
+    @Override
+    public Object beforeMessage() {
+        MessageReceivedEvent event = new MessageReceivedEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void onReceived(ProtocolCommands command) {
+        ServerMetrics.getInstance().recordReceived(command);
+    }
+
+    @Override
+    public void onHandled(Object context, ProtocolCommands command, int frameLength, boolean binary, long handlerNanos) {
+        ServerMetrics.getInstance().recordHandled(command, handlerNanos);
+
+        MessageReceivedEvent event = (MessageReceivedEvent) context;
+        if (event.shouldCommit()) {
+            event.command = command.name();
+            event.username = clientConnection.getUsername();
+            event.frameLength = frameLength;
+            event.binary = binary;
+            event.handlerDuration = handlerNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onMessageError(Exception e) {
+        ServerMetrics.getInstance().recordError();
+        if (e.getMessage() == null) {
+            return;
+        }
+
+        if (e.getMessage().contains("Unknown command")) {
+            clientConnection.sendMessage(ProtocolCommands.UNKNOWN_COMMAND.toString());
+        } else if (e.getMessage().contains("Failed to parse message content")) {
+            clientConnection.sendMessage(ProtocolCommands.PARSE_ERROR.toString());
+        }
+    }
+
+    @Override
+    public void onOversizedFrame() {
+        clientConnection.sendMessage(ProtocolCommands.PARSE_ERROR.toString());
+    }
+
+    @Override
+    public void onCorruptStream() {
+        clientConnection.sendMessage(ProtocolCommands.PARSE_ERROR.toString());
+    }
+
+    @Override
+    public void onReadFailed(Exception e) {
+        ServerLogger.log(new LogEntry.Builder()
+                .logType(ServerLogger.LogType.MESSAGE)
+                .level(LogLevel.ERROR)
+                .clientAddress(String.valueOf(clientConnection.getSocket().getInetAddress().getHostAddress()))
+                .clientPort(clientConnection.getSocket().getPort())
+                .message(e.getMessage())
+                .color(ConsoleColors.RED.getColor())
+                .build());
+    }
+}
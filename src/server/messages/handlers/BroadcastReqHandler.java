@@ -26,10 +26,6 @@ public class BroadcastReqHandler implements MessageHandler<BroadcastReq> {
             clientConnection.sendMessage(broadcastResp);
         }
 
-        for (ClientConnection connection : ClientRegistry.getInstance().getLoggedInClients().values()) {
-            if (connection != clientConnection) {
-                connection.sendMessage(new Broadcast(clientConnection.getUsername(), message.message()));
-            }
-        }
+        ClientRegistry.getInstance().broadcast(new Broadcast(clientConnection.getUsername(), message.message()), clientConnection);
     }
 }
@@ -1,11 +1,10 @@
 package server.messages.handlers;
 
-import server.connection.ClientRegistry;
 import server.connection.ClientConnection;
+import server.presence.PresenceBatcher;
 import shared.messages.handling.MessageHandler;
 import shared.messages.model.client.Bye;
 import shared.messages.model.server.ByeResp;
-import shared.messages.model.server.Left;
 
 public class ByeHandler implements MessageHandler<Bye> {
     private final ClientConnection clientConnection;
@@ -19,11 +18,9 @@ public class ByeHandler implements MessageHandler<Bye> {
         // send bye_resp and close the connection
         clientConnection.sendMessage(new ByeResp("OK"));
 
-        // send LEFT message to all other clients
-        for(ClientConnection connection:ClientRegistry.getInstance().getLoggedInClients().values()){
-            if(connection != clientConnection && clientConnection.getUsername() != null){
-                connection.sendMessage(new Left(clientConnection.getUsername()));
-            }
+        // send LEFT message to all other clients, batched for clients with the PRESENCE feature
+        if (clientConnection.getUsername() != null) {
+            PresenceBatcher.getInstance().left(clientConnection);
         }
 
         // remove the client from the registry
@@ -5,7 +5,6 @@ import server.connection.ClientConnection;
 import server.errors.ErrorCode;
 import shared.messages.handling.MessageHandler;
 import shared.messages.model.client.ClientsReq;
-import shared.messages.model.server.Clients;
 import shared.messages.model.server.ClientsResp;
 
 public class ClientsReqHandler implements MessageHandler<ClientsReq> {
@@ -23,11 +22,6 @@ public class ClientsReqHandler implements MessageHandler<ClientsReq> {
         }
 
         // send all clients except the client that requested the list
-        clientConnection.sendMessage(new Clients(
-                ClientRegistry.getInstance().getLoggedInClients().values().stream()
-                        .filter(connection -> connection != clientConnection)
-                        .map(ClientConnection::getUsername)
-                        .toList()
-        ));
+        clientConnection.sendFrame(ClientRegistry.getInstance().getClientsFrame(clientConnection));
     }
 }
@@ -2,12 +2,12 @@ package server.messages.handlers;
 
 import server.connection.ClientRegistry;
 import server.pingpong.PingPongManager;
+import server.presence.PresenceBatcher;
 import server.connection.ClientConnection;
 import server.errors.ClientException;
 import shared.messages.handling.MessageHandler;
 import shared.messages.model.client.Enter;
 import shared.messages.model.server.EnterResp;
-import shared.messages.model.server.Joined;
 
 public class EnterHandler implements MessageHandler<Enter> {
     private final ClientConnection clientConnection;
@@ -21,14 +21,13 @@ public class EnterHandler implements MessageHandler<Enter> {
     @Override
     public void handle(Enter message) {
         try {
+            PresenceBatcher.getInstance().loggingIn(clientConnection);
             ClientRegistry.getInstance().logInClient(message.username(), clientConnection);
             EnterResp enterResp = new EnterResp("OK", null);
             clientConnection.sendMessage(enterResp);
             pingPongManager.start();
 
-            ClientRegistry.getInstance().getLoggedInClients().values().stream()
-                    .filter(c -> !c.equals(clientConnection))
-                    .forEach(c -> c.sendMessage(new Joined(message.username())));
+            PresenceBatcher.getInstance().joined(clientConnection);
 
         } catch (ClientException e) {
             clientConnection.sendMessage(new EnterResp("ERROR", e.getErrorCode()));
@@ -0,0 +1,63 @@
+package server.messages.handlers;
+
+import server.connection.ClientConnection;
+import server.constants.ServerConfig;
+import server.errors.ErrorCode;
+import shared.constants.ProtocolFeatures;
+import shared.constants.WireFormat;
+import shared.messages.handling.MessageHandler;
+import shared.messages.model.client.FeatureReq;
+import shared.messages.model.server.FeatureResp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Enables the optional protocol features a client asks for. Features can only be negotiated once, before the client
+ * logs in. Unknown features are ignored, the response lists the features that were enabled. DEFLATE is only enabled
+ * if {@link ServerConfig#COMPRESSION_LEVEL} is set, PRESENCE only if {@link ServerConfig#PRESENCE_WINDOW} is set.
+ */
+public class FeatureReqHandler implements MessageHandler<FeatureReq> {
+    private final ClientConnection clientConnection;
+    private boolean negotiated;
+
+    public FeatureReqHandler(ClientConnection clientConnection) {
+        this.clientConnection = clientConnection;
+    }
+
+    @Override
+    public void handle(FeatureReq message) {
+        if (negotiated || clientConnection.getUsername() != null) {
+            clientConnection.sendMessage(new FeatureResp("ERROR", ErrorCode.FEATURES_ALREADY_NEGOTIATED.getCode(), null));
+            return;
+        }
+        negotiated = true;
+
+        List<String> enabled = new ArrayList<>();
+        if (message.features() != null) {
+            for (String name : message.features()) {
+                ProtocolFeatures feature = ProtocolFeatures.fromName(name);
+                if (feature == ProtocolFeatures.DEFLATE && ServerConfig.COMPRESSION_LEVEL <= 0) {
+                    continue;
+                }
+                if (feature == ProtocolFeatures.PRESENCE && ServerConfig.PRESENCE_WINDOW <= 0) {
+                    continue;
+                }
+                if (feature != null && !enabled.contains(feature.name())) {
+                    enabled.add(feature.name());
+                }
+            }
+        }
+
+        clientConnection.setPresenceBatched(enabled.contains(ProtocolFeatures.PRESENCE.name()));
+
+        FeatureResp response = new FeatureResp("OK", null, enabled);
+        boolean binary = enabled.contains(ProtocolFeatures.BINARY.name());
+        boolean compressed = enabled.contains(ProtocolFeatures.DEFLATE.name());
+        if (binary || compressed) {
+            clientConnection.switchFeatures(response, binary ? WireFormat.BINARY : WireFormat.TEXT, compressed);
+        } else {
+            clientConnection.sendMessage(response);
+        }
+    }
+}
@@ -41,14 +41,14 @@ public class TransferReqHandler implements MessageHandler<TransferReq> {
             return;
         }
 
-        // send transfer request to receiver
+        // add pending session and start timeout, before the receiver can accept it
         TransferSession session = new TransferSession(clientConnection.getUsername(), message.username(), message.filename(), message.checksum());
+        FileTransferManager.getInstance().addPendingSession(session);
+
+        // send transfer request to receiver
         TransferReq transferReq = new TransferReq(clientConnection.getUsername(), message.filename(), message.filesize(), message.checksum(), session.getId());
         receiverConnection.sendMessage(transferReq);
 
-        // add pending session and start timeout
-        FileTransferManager.getInstance().addPendingSession(session);
-
         // inform sender that the transfer request has been sent
         clientConnection.sendMessage(new TransferResp("OK", null));
     }
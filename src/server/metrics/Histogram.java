@@ -0,0 +1,69 @@
+package server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations with logarithmic buckets. Bucket {@code i} counts the durations up to
+ * {@code 2^(MIN_SHIFT + i)} nanoseconds, so the buckets range from about a microsecond to about 8.6 seconds and
+ * longer durations are only counted in the last (+Inf) bucket. Recording is an increment of a single bucket
+ * and of the sum, no lock is taken and nothing is allocated.
+ */
+public class Histogram {
+    private static final int MIN_SHIFT = 10;
+    private static final int BUCKETS = 24;
+
+    // the last element counts the durations above the largest bucket
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS + 1);
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Records a duration.
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        // the exponent of the smallest power of two that is at least the duration
+        int shift = nanos <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(nanos - 1);
+        int bucket = Math.min(Math.max(shift - MIN_SHIFT, 0), BUCKETS);
+        buckets.incrementAndGet(bucket);
+        sumNanos.add(Math.max(nanos, 0));
+    }
+
+    /**
+     * Get the number of buckets without the +Inf bucket.
+     * @return the number of buckets
+     */
+    public static int getBucketCount() {
+        return BUCKETS;
+    }
+
+    /**
+     * Get the upper bound of a bucket.
+     * @param bucket the index of the bucket, less than {@link #getBucketCount()}
+     * @return the upper bound in nanoseconds
+     */
+    public static long getUpperBoundNanos(int bucket) {
+        return 1L << (MIN_SHIFT + bucket);
+    }
+
+    /**
+     * Get the number of durations in a bucket.
+     * @param bucket the index of the bucket, {@link #getBucketCount()} for the +Inf bucket
+     * @return the number of durations in the bucket, not cumulative
+     */
+    public long getBucket(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i <= BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,53 @@
+package server.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the {@link ServerMetrics} in the Prometheus text format on {@code /metrics}. Scrapes are handled one at a
+ * time on the thread of the HTTP server, so scraping never takes a thread from the clients.
+ */
+public class MetricsServer {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer httpServer;
+
+    /**
+     * Binds the HTTP server, it is started with {@link #start()}.
+     * @param address the address to listen on, usually the loopback address
+     * @param port the port to listen on
+     * @throws IOException if the port can not be bound
+     */
+    public MetricsServer(String address, int port) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(address, port), 0);
+        httpServer.createContext("/metrics", this::handle);
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            StringBuilder body = new StringBuilder(8 * 1024);
+            ServerMetrics.getInstance().writePrometheus(body);
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package server.metrics;
+
+import server.connection.AdmissionController;
+import server.connection.ClientRegistry;
+import server.connection.DropStats;
+import server.connection.WriteStats;
+import server.logger.ServerLogger;
+import server.ratelimit.RateLimiter;
+import server.rps.GameManager;
+import server.transfer.FileTransferManager;
+import shared.constants.ProtocolCommands;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the metrics of the server and renders them in the Prometheus text format, see {@link MetricsServer}.
+ * Messages are counted per {@link ProtocolCommands} in striped {@link LongAdder}s and the handler latency is kept in
+ * a {@link Histogram} per command, so recording on the hot path never takes a lock. The sizes of the registries and
+ * the counters that other classes keep already, e.g. {@link WriteStats#GLOBAL}, are only read when scraped.
+ */
+public class ServerMetrics {
+    private static final ProtocolCommands[] COMMANDS = ProtocolCommands.values();
+    private static final ServerMetrics instance = new ServerMetrics();
+
+    private final LongAdder[] received = new LongAdder[COMMANDS.length];
+    private final LongAdder[] sent = new LongAdder[COMMANDS.length];
+    private final Histogram[] handlerLatency = new Histogram[COMMANDS.length];
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private ServerMetrics() {
+        for (int i = 0; i < COMMANDS.length; i++) {
+            received[i] = new LongAdder();
+            sent[i] = new LongAdder();
+            handlerLatency[i] = new Histogram();
+        }
+    }
+
+    public static ServerMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Records bytes read from a client, before they are decompressed or decoded.
+     * @param bytes the number of bytes
+     */
+    public void recordBytesReceived(int bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    /**
+     * Records a message that was received and parsed.
+     * @param command the command of the message
+     */
+    public void recordReceived(ProtocolCommands command) {
+        received[command.ordinal()].increment();
+    }
+
+    /**
+     * Records how long the handler of a message took.
+     * @param command the command of the message
+     * @param nanos the duration of the handler in nanoseconds
+     */
+    public void recordHandled(ProtocolCommands command, long nanos) {
+        handlerLatency[command.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records a message that could not be parsed or failed in its handler.
+     */
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Records a message that was queued for a client.
+     * @param command the command of the message
+     */
+    public void recordSent(ProtocolCommands command) {
+        sent[command.ordinal()].increment();
+    }
+
+    public long getReceived(ProtocolCommands command) {
+        return received[command.ordinal()].sum();
+    }
+
+    public long getSent(ProtocolCommands command) {
+        return sent[command.ordinal()].sum();
+    }
+
+    public Histogram getHandlerLatency(ProtocolCommands command) {
+        return handlerLatency[command.ordinal()];
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format. Commands that were never seen are left out.
+     * @param out the builder to append to
+     */
+    public void writePrometheus(StringBuilder out) {
+        header(out, "chat_messages_received_total", "counter", "Messages received from clients per command");
+        for (ProtocolCommands command : COMMANDS) {
+            long count = getReceived(command);
+            if (count > 0) {
+                sample(out, "chat_messages_received_total", "command", command.name(), count);
+            }
+        }
+
+        header(out, "chat_messages_sent_total", "counter", "Messages queued for clients per command");
+        for (ProtocolCommands command : COMMANDS) {
+            long count = getSent(command);
+            if (count > 0) {
+                sample(out, "chat_messages_sent_total", "command", command.name(), count);
+            }
+        }
+
+        header(out, "chat_handler_latency_seconds", "histogram", "Time spent in the message handler per command");
+        for (ProtocolCommands command : COMMANDS) {
+            Histogram histogram = getHandlerLatency(command);
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+
+            long cumulative = 0;
+            for (int i = 0; i < Histogram.getBucketCount(); i++) {
+                cumulative += histogram.getBucket(i);
+                out.append("chat_handler_latency_seconds_bucket{command=\"").append(command.name())
+                        .append("\",le=\"").append(Histogram.getUpperBoundNanos(i) / 1e9).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            out.append("chat_handler_latency_seconds_bucket{command=\"").append(command.name())
+                    .append("\",le=\"+Inf\"} ").append(count).append('\n');
+            out.append("chat_handler_latency_seconds_sum{command=\"").append(command.name()).append("\"} ")
+                    .append(histogram.getSumNanos() / 1e9).append('\n');
+            out.append("chat_handler_latency_seconds_count{command=\"").append(command.name()).append("\"} ")
+                    .append(count).append('\n');
+        }
+
+        metric(out, "chat_message_errors_total", "counter", "Messages that could not be parsed or failed in their handler", errors.sum());
+        metric(out, "chat_bytes_received_total", "counter", "Bytes read from clients", bytesReceived.sum());
+        metric(out, "chat_bytes_sent_total", "counter", "Bytes written to clients", WriteStats.GLOBAL.getBytes());
+        metric(out, "chat_write_flushes_total", "counter", "Writes of a batch of messages to a client", WriteStats.GLOBAL.getFlushes());
+
+        ClientRegistry registry = ClientRegistry.getInstance();
+        metric(out, "chat_clients", "gauge", "Connected clients", registry.getTotalClients());
+        metric(out, "chat_users", "gauge", "Logged in users", registry.getLoggedInUsers());
+
+        FileTransferManager transfers = FileTransferManager.getInstance();
+        header(out, "chat_file_transfers", "gauge", "File transfer sessions per state");
+        sample(out, "chat_file_transfers", "state", "pending", transfers.getPendingSessionCount());
+        sample(out, "chat_file_transfers", "state", "active", transfers.getActiveSessionCount());
+
+        metric(out, "chat_rps_game_active", "gauge", "1 if a rock paper scissors game is in progress", GameManager.getInstance().isGameActive() ? 1 : 0);
+
+        header(out, "chat_slow_consumer_dropped_total", "counter", "Messages not delivered to slow clients per reason");
+        for (DropStats.Reason reason : DropStats.Reason.values()) {
+            sample(out, "chat_slow_consumer_dropped_total", "reason", reason.name(), DropStats.GLOBAL.getDropped(reason));
+        }
+        metric(out, "chat_slow_consumer_evictions_total", "counter", "Clients disconnected for being too slow", DropStats.GLOBAL.getEvictions());
+
+        AdmissionController admission = AdmissionController.getInstance();
+        metric(out, "chat_connections_admitted_total", "counter", "Connections admitted", admission.getAdmitted());
+        header(out, "chat_connections_rejected_total", "counter", "Connections rejected per reason");
+        for (AdmissionController.Rejection rejection : AdmissionController.Rejection.values()) {
+            sample(out, "chat_connections_rejected_total", "reason", rejection.name(), admission.getRejected(rejection));
+        }
+
+        metric(out, "chat_rate_limited_total", "counter", "Messages rejected by the rate limiter", RateLimiter.getInstance().getThrottled());
+        metric(out, "chat_log_entries_dropped_total", "counter", "Log entries dropped because the log buffer was full", ServerLogger.getDropped());
+        metric(out, "chat_audit_records_dropped_total", "counter", "Audit records dropped because the audit buffer was full", ServerLogger.getAuditDropped());
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, long sample) {
+        out.append(name).append('{').append(label).append("=\"").append(value).append("\"} ").append(sample).append('\n');
+    }
+
+    private static void metric(StringBuilder out, String name, String type, String help, long value) {
+        header(out, name, type, help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+}
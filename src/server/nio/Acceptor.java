@@ -0,0 +1,93 @@
+package server.nio;
+
+import server.connection.AdmissionController;
+import server.connection.ClientConnection;
+import server.constants.ServerConfig;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.function.BiConsumer;
+
+/**
+ * An acceptor owns one listening {@link ServerSocketChannel} and hands every accepted connection to one of the
+ * event loops of its own worker group, round-robin. Acceptors never share loops, so no state is shared
+ * between acceptor threads and a connection stays on the loop it was given for its whole lifetime.
+ */
+public class Acceptor implements Runnable {
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] workerGroup;
+    private final BiConsumer<ClientConnection, NioTransport> clientInitializer;
+    private int nextLoop;
+
+    public Acceptor(ServerSocketChannel serverChannel, EventLoop[] workerGroup, BiConsumer<ClientConnection, NioTransport> clientInitializer) {
+        this.serverChannel = serverChannel;
+        this.workerGroup = workerGroup;
+        this.clientInitializer = clientInitializer;
+    }
+
+    /**
+     * Accepts connections until the server channel is closed.
+     */
+    @Override
+    public void run() {
+        try (serverChannel) {
+            while (serverChannel.isOpen()) {
+                SocketChannel channel = serverChannel.accept();
+                InetAddress address = channel.socket().getInetAddress();
+                if (!AdmissionController.getInstance().admitOrClose(address, channel)) {
+                    continue;
+                }
+
+                // a connection that fails here, e.g. reset by the peer right after the accept, must not stop the acceptor
+                ClientConnection clientConnection = null;
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, ServerConfig.TCP_NO_DELAY);
+
+                    EventLoop eventLoop = nextEventLoop();
+                    NioTransport transport = new NioTransport(channel, eventLoop);
+                    clientConnection = new ClientConnection(transport);
+
+                    clientInitializer.accept(clientConnection, transport);
+                    eventLoop.register(transport);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Failed to set up connection from " + address + ": " + e.getMessage());
+                    closeAfterFailure(channel, address, clientConnection);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Acceptor error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes a connection that could not be set up and releases its admission.
+     * @param channel the accepted channel
+     * @param address the address of the client
+     * @param clientConnection the connection or null if it was not created yet
+     */
+    private void closeAfterFailure(SocketChannel channel, InetAddress address, ClientConnection clientConnection) {
+        if (clientConnection != null) {
+            // closing the connection closes the channel and releases the admission
+            clientConnection.closeConnection();
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close client channel: " + e.getMessage());
+        } finally {
+            AdmissionController.getInstance().release(address);
+        }
+    }
+
+    private EventLoop nextEventLoop() {
+        EventLoop eventLoop = workerGroup[nextLoop];
+        nextLoop = (nextLoop + 1) % workerGroup.length;
+        return eventLoop;
+    }
+}
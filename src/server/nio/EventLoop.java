@@ -0,0 +1,146 @@
+package server.nio;
+
+import server.constants.ServerConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An event loop owns a {@link Selector} and serves every channel registered to it from a single thread.
+ * Reading, line framing and message dispatch all happen on the loop thread. Other threads interact with the loop
+ * only through {@link #execute(Runnable)}, which queues the task and wakes up the selector.
+ */
+public class EventLoop implements Runnable {
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // a heap buffer, so complete lines are parsed straight from its array without being copied
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(ServerConfig.EVENT_LOOP_READ_BUFFER_SIZE);
+    private volatile Thread thread;
+
+    public EventLoop() throws IOException {
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Registers a client channel to this loop. The registration itself happens on the loop thread.
+     * @param transport the transport of the client
+     */
+    public void register(NioTransport transport) {
+        execute(() -> {
+            try {
+                SelectionKey key = transport.getChannel().register(selector, SelectionKey.OP_READ, transport);
+                transport.onRegistered(key);
+            } catch (ClosedChannelException e) {
+                transport.onClosed();
+            }
+        });
+    }
+
+    /**
+     * Queues a task to be run on the loop thread and wakes up the selector.
+     * @param task the task to run
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Checks if the caller is running on the loop thread.
+     * @return true if the current thread is the loop thread
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+
+        while (selector.isOpen()) {
+            try {
+                selector.select();
+                processSelectedKeys();
+                runTasks();
+            } catch (IOException e) {
+                System.err.println("Event loop error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Handles the ready operations of every selected key.
+     */
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+
+            NioTransport transport = (NioTransport) key.attachment();
+            try {
+                if (!key.isValid()) {
+                    transport.onClosed();
+                    continue;
+                }
+
+                if (key.isReadable()) {
+                    transport.onReadable(readBuffer);
+                }
+
+                if (key.isValid() && key.isWritable()) {
+                    transport.onWritable();
+                }
+            } catch (RuntimeException e) {
+                // a failing client must not end the loop, the other channels of the loop would hang
+                System.err.println("Event loop error, closing the client: " + e);
+                closeAfterFailure(transport);
+            }
+        }
+    }
+
+    /**
+     * Closes a client whose handling failed on the loop thread. The channel is closed even if closing the
+     * connection fails halfway.
+     * @param transport the transport of the client
+     */
+    private void closeAfterFailure(NioTransport transport) {
+        try {
+            transport.onClosed();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to close client connection: " + e);
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * Runs all queued tasks, including the ones queued while running.
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                System.err.println("Event loop task failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the number of channels registered to this loop.
+     * @return the number of registered channels
+     */
+    public int getChannelCount() {
+        return selector.keys().size();
+    }
+}
@@ -0,0 +1,104 @@
+package server.nio;
+
+import server.connection.ClientConnection;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The selector based server engine, laid out as boss and worker groups. One or more {@link Acceptor}s accept
+ * connections and hand them to a fixed set of {@link EventLoop}s, by default one loop per core.
+ * With more than one acceptor every acceptor binds its own socket to the port with {@code SO_REUSEPORT}, so the
+ * kernel spreads incoming connections over the acceptors and a reconnect storm is not limited by one accept loop.
+ * The loops are split into disjoint groups, one per acceptor.
+ */
+public class NioServer {
+    private final int port;
+    private final int acceptorThreads;
+    private final EventLoop[] eventLoops;
+
+    public NioServer(int port, int acceptorThreads, int eventLoopThreads) throws IOException {
+        this.port = port;
+        this.acceptorThreads = Math.max(1, Math.min(acceptorThreads, eventLoopThreads));
+        this.eventLoops = new EventLoop[eventLoopThreads];
+
+        for (int i = 0; i < eventLoopThreads; i++) {
+            eventLoops[i] = new EventLoop();
+            Thread thread = new Thread(eventLoops[i], "event-loop-" + i);
+            thread.start();
+        }
+    }
+
+    /**
+     * Binds the acceptor sockets and accepts connections until they are closed. Blocks the calling thread.
+     * Falls back to a single acceptor when the platform does not support {@code SO_REUSEPORT}.
+     * @param clientInitializer sets up the handlers of a new client and binds them to its transport
+     */
+    public void start(BiConsumer<ClientConnection, NioTransport> clientInitializer) throws IOException {
+        List<ServerSocketChannel> serverChannels = bindServerChannels();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < serverChannels.size(); i++) {
+            Acceptor acceptor = new Acceptor(serverChannels.get(i), workerGroup(i, serverChannels.size()), clientInitializer);
+            Thread thread = new Thread(acceptor, "acceptor-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Opens and binds one listening channel per acceptor.
+     * @return the bound channels
+     */
+    private List<ServerSocketChannel> bindServerChannels() throws IOException {
+        List<ServerSocketChannel> serverChannels = new ArrayList<>();
+
+        ServerSocketChannel first = ServerSocketChannel.open();
+        boolean reusePort = acceptorThreads > 1 && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        if (reusePort) {
+            first.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        first.bind(new InetSocketAddress(port));
+        serverChannels.add(first);
+
+        if (!reusePort) {
+            return serverChannels;
+        }
+
+        for (int i = 1; i < acceptorThreads; i++) {
+            ServerSocketChannel serverChannel = ServerSocketChannel.open();
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannels.add(serverChannel);
+        }
+        return serverChannels;
+    }
+
+    /**
+     * Get the loops served by the given acceptor. Loop {@code i} belongs to acceptor {@code i % acceptors}.
+     * @param acceptor the index of the acceptor
+     * @param acceptors the number of acceptors
+     * @return the worker group of the acceptor
+     */
+    private EventLoop[] workerGroup(int acceptor, int acceptors) {
+        List<EventLoop> group = new ArrayList<>();
+        for (int i = acceptor; i < eventLoops.length; i += acceptors) {
+            group.add(eventLoops[i]);
+        }
+        return group.toArray(new EventLoop[0]);
+    }
+}
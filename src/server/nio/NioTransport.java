@@ -0,0 +1,277 @@
+package server.nio;
+
+import server.connection.ClientConnection;
+import server.connection.ClientTransport;
+import server.connection.OutboundFrame;
+import server.connection.OutboundQueue;
+import server.connection.WriteStats;
+import server.constants.ServerConfig;
+import server.jfr.OutboundFlushEvent;
+import shared.connection.CompressionStats;
+import shared.connection.StreamCompressor;
+import shared.constants.WireFormat;
+import shared.messages.handling.MessageParser;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link ClientTransport} backed by a non-blocking {@link SocketChannel} that is served by an {@link EventLoop}.
+ * Incoming bytes are framed into lines on the loop thread and handed to the {@link MessageParser} of the client.
+ * The outbound queue of the client is drained by the loop as well, any thread may signal new lines.
+ * Queued lines are written together with one gathering write, up to {@link #MAX_GATHERED_LINES} lines
+ * or {@link ServerConfig#WRITE_BATCH_BYTES} bytes at a time.
+ */
+public class NioTransport implements ClientTransport {
+    private static final int MAX_GATHERED_LINES = 64;
+
+    private final SocketChannel channel;
+    private final EventLoop eventLoop;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final WriteStats writeStats = new WriteStats();
+    private final ByteBuffer[] gathered = new ByteBuffer[MAX_GATHERED_LINES];
+    private SelectionKey selectionKey;
+    private OutboundQueue<OutboundFrame> outbound;
+    private int gatheredOffset;
+    private int gatheredCount;
+    private int gatheredMessages;
+    private long gatheredBytes;
+    private ClientConnection connection;
+    private MessageParser parser;
+    // only used on the loop thread, switched in queue order by the frame that completes the negotiation
+    private WireFormat wireFormat = WireFormat.TEXT;
+    private final CompressionStats compressionStats = new CompressionStats();
+    private StreamCompressor compressor;
+
+    public NioTransport(SocketChannel channel, EventLoop eventLoop) {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Binds the client connection and its parser to the transport. Must be called before the channel is registered.
+     * @param connection the client connection using this transport
+     * @param parser the parser that handles the framed lines
+     */
+    public void bind(ClientConnection connection, MessageParser parser) {
+        this.connection = connection;
+        this.parser = parser;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Called on the loop thread once the channel is registered. Writes the lines queued before the registration.
+     * @param selectionKey the key of the channel
+     */
+    void onRegistered(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+        flush();
+    }
+
+    @Override
+    public Socket getSocket() {
+        return channel.socket();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    @Override
+    public void start(OutboundQueue<OutboundFrame> outbound) {
+        this.outbound = outbound;
+    }
+
+    @Override
+    public void signal() {
+        if (!closed.get() && flushScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(this::flush);
+        }
+    }
+
+    @Override
+    public WriteStats getWriteStats() {
+        return writeStats;
+    }
+
+    @Override
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    /**
+     * Closes the transport. Lines queued before the call (e.g. BYE_RESP or HANGUP) are still written
+     * as far as the socket buffer allows, then the channel is closed on the loop thread.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            eventLoop.execute(this::closeChannel);
+        }
+    }
+
+    /**
+     * Reads the available bytes from the channel and dispatches every complete line. Runs on the loop thread.
+     * @param readBuffer the read buffer of the loop, shared by all channels of the loop
+     */
+    void onReadable(ByteBuffer readBuffer) {
+        readBuffer.clear();
+
+        int bytesRead;
+        try {
+            bytesRead = channel.read(readBuffer);
+        } catch (IOException e) {
+            onClosed();
+            return;
+        }
+
+        if (bytesRead == -1) {
+            onClosed();
+            return;
+        }
+
+        readBuffer.flip();
+        parser.decode(readBuffer);
+    }
+
+    /**
+     * Writes as many queued lines as the channel accepts. Registers write interest if the socket buffer is full.
+     * Runs on the loop thread.
+     */
+    void onWritable() {
+        flush();
+    }
+
+    /**
+     * Closes the client connection after the channel was closed by the peer or became invalid.
+     */
+    void onClosed() {
+        if (!closed.get()) {
+            connection.closeConnection();
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        if (closed.get() || selectionKey == null) {
+            return;
+        }
+
+        try {
+            boolean drained = writePending();
+            selectionKey.interestOps(drained ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            onClosed();
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            if (selectionKey != null) {
+                writePending();
+            }
+        } catch (IOException e) {
+            // the peer is gone already, nothing left to deliver
+        }
+
+        Arrays.fill(gathered, null);
+        if (compressor != null) {
+            compressor.end();
+        }
+        // the parser is missing if the connection failed before it was bound
+        if (parser != null) {
+            parser.close();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close client channel: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes queued lines until the queue is empty or the socket buffer is full.
+     * Lines are gathered into batches, a batch that was only written partially is continued on the next call.
+     * @return true if all queued lines were written
+     */
+    private boolean writePending() throws IOException {
+        while (true) {
+            if (gatheredOffset == gatheredCount && !gatherLines()) {
+                return true;
+            }
+
+            OutboundFlushEvent event = new OutboundFlushEvent();
+            event.begin();
+            long written = channel.write(gathered, gatheredOffset, gatheredCount - gatheredOffset);
+            while (gatheredOffset < gatheredCount && !gathered[gatheredOffset].hasRemaining()) {
+                gathered[gatheredOffset++] = null;
+            }
+
+            boolean complete = gatheredOffset == gatheredCount;
+            if (event.shouldCommit()) {
+                event.clientPort = channel.socket().getPort();
+                event.messages = complete ? gatheredMessages : 0;
+                event.bytes = written;
+                event.compressed = compressor != null;
+                event.commit();
+            }
+
+            if (!complete) {
+                return false;
+            }
+            writeStats.recordFlush(gatheredMessages, gatheredBytes);
+        }
+    }
+
+    /**
+     * Takes the next batch of lines from the outbound queue. Once the client negotiated compression, the batch is
+     * compressed into a single buffer.
+     * @return true if at least one line was taken
+     */
+    private boolean gatherLines() {
+        gatheredOffset = 0;
+        gatheredCount = 0;
+        gatheredMessages = 0;
+        gatheredBytes = 0;
+
+        boolean compressing = compressor != null;
+        OutboundFrame frame;
+        while (gatheredMessages < MAX_GATHERED_LINES && gatheredBytes < ServerConfig.WRITE_BATCH_BYTES
+                && (frame = outbound.poll()) != null) {
+            byte[] bytes = frame.getBytes(wireFormat);
+            if (frame.getSwitchTo() != null) {
+                wireFormat = frame.getSwitchTo();
+            }
+            gatheredBytes += bytes.length;
+            gatheredMessages++;
+
+            if (compressing) {
+                compressor.write(bytes, 0, bytes.length);
+            } else {
+                // the frame may be shared with other clients, the buffer is only a view with its own position
+                gathered[gatheredCount++] = ByteBuffer.wrap(bytes);
+            }
+
+            if (frame.isCompressedAfter() && compressor == null) {
+                // the frame that starts the compression is the last one written as is
+                compressor = new StreamCompressor(ServerConfig.COMPRESSION_LEVEL, compressionStats);
+                break;
+            }
+        }
+
+        if (compressing && gatheredMessages > 0) {
+            gathered[gatheredCount++] = compressor.flush();
+        }
+        return gatheredMessages > 0;
+    }
+}
@@ -1,68 +1,119 @@
 package server.pingpong;
 
+import server.ServerExecutors;
 import server.connection.ClientConnection;
 import server.constants.ServerConfig;
+import server.timeout.HashedWheelTimer;
 import shared.messages.model.server.Hangup;
 import shared.messages.model.server.Ping;
 import shared.messages.model.server.PongError;
 
-import java.util.concurrent.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A class that manages the ping pong messages between the server and the client.
- * Uses {@link ScheduledExecutorService} to send PING messages to the client at regular intervals.
+ * Uses the {@link HashedWheelTimer} shared by all clients to send PING messages to the client at regular intervals,
+ * so a client costs two pending timeouts and no thread. The due heartbeat is always handed off to a task executor,
+ * it may close the connection, which notifies other clients, so it never runs on the timer and a slow heartbeat never
+ * delays the other clients.
  * If a PONG message is not received in time, the connection is closed.
  */
 public class PingPongManager {
     private final ClientConnection clientConnection;
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final HashedWheelTimer timer;
+    private final Executor taskExecutor;
     private final AtomicBoolean expectingPong = new AtomicBoolean(false);
+    // a ReentrantLock instead of synchronized, so a blocking write never pins a virtual thread to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean stopped;
+    private HashedWheelTimer.Timeout pingTask;
+    private HashedWheelTimer.Timeout pongTimeoutTask;
 
+    /**
+     * Creates a ping pong manager on the shared timer, see {@link ServerExecutors#timer()}, whose heartbeats run on
+     * {@link ServerExecutors#timedTaskExecutor()}.
+     * @param clientConnection the client connection
+     */
     public PingPongManager(ClientConnection clientConnection) {
+        this(clientConnection, ServerExecutors.timer(), ServerExecutors.timedTaskExecutor());
+    }
+
+    /**
+     * Creates a ping pong manager that schedules its tasks on a timer shared with other clients.
+     * The timer is never stopped by the manager, only the timeouts of this client are cancelled.
+     * @param clientConnection the client connection
+     * @param timer the shared timer
+     * @param taskExecutor the executor that runs the heartbeat once it is due
+     */
+    public PingPongManager(ClientConnection clientConnection, HashedWheelTimer timer, Executor taskExecutor) {
         this.clientConnection = clientConnection;
+        this.timer = timer;
+        this.taskExecutor = taskExecutor;
     }
 
     /**
-     * Starts the ping pong manager thread
+     * Starts sending heartbeats
      */
     public void start() {
-        scheduler.scheduleAtFixedRate(this::sendPing, ServerConfig.PING_INTERVAL, ServerConfig.PING_INTERVAL, TimeUnit.MILLISECONDS);
+        lock.lock();
+        try {
+            schedulePing();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void schedulePing() {
+        pingTask = timer.schedule(() -> taskExecutor.execute(this::sendPing), ServerConfig.PING_INTERVAL, TimeUnit.MILLISECONDS);
     }
 
     /**
      * Sends a PING message to the client
      */
-    private synchronized void sendPing() {
-        if (!clientConnection.isConnected()) {
-            stop();
-            return;
-        }
+    private void sendPing() {
+        lock.lock();
+        try {
+            if (!clientConnection.isConnected()) {
+                stop();
+                return;
+            }
 
-        if (expectingPong.get()) {
-            sendHangupAndClose(7000);
-            return;
-        }
+            if (expectingPong.get()) {
+                sendHangupAndClose(7000);
+                return;
+            }
 
-        try {
-            if (!scheduler.isShutdown()) {
-                clientConnection.sendMessage(new Ping());
-                expectingPong.set(true);
-                scheduler.schedule(this::checkPongTimeout, ServerConfig.PONG_TIMEOUT, TimeUnit.MILLISECONDS);
+            try {
+                if (!stopped) {
+                    clientConnection.sendMessage(new Ping());
+                    expectingPong.set(true);
+                    pongTimeoutTask = timer.schedule(() -> taskExecutor.execute(this::checkPongTimeout), ServerConfig.PONG_TIMEOUT, TimeUnit.MILLISECONDS);
+                    // the next heartbeat is scheduled once this one was sent, like a fixed rate of PING_INTERVAL
+                    schedulePing();
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to send PING: " + e.getMessage());
+                stop();
             }
-        } catch (Exception e) {
-            System.err.println("Failed to send PING: " + e.getMessage());
-            stop();
+        } finally {
+            lock.unlock();
         }
-
     }
 
     /**
      * Checks if a PONG message was received in time.
      */
-    private synchronized void checkPongTimeout() {
-        if (expectingPong.get() && clientConnection.isConnected()) {
-            sendHangupAndClose(7000);
+    private void checkPongTimeout() {
+        lock.lock();
+        try {
+            if (expectingPong.get() && clientConnection.isConnected()) {
+                sendHangupAndClose(7000);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -70,16 +121,21 @@ public class PingPongManager {
      * Handles a PONG message.
      * Sends a PONG_ERROR if not expecting a PONG
      */
-    public synchronized void handlePong() {
-        if (!clientConnection.isConnected()) {
-            stop();
-            return;
-        }
+    public void handlePong() {
+        lock.lock();
+        try {
+            if (!clientConnection.isConnected()) {
+                stop();
+                return;
+            }
 
-        if (!expectingPong.get()) {
-            clientConnection.sendMessage(new PongError(8000));
-        } else {
-            expectingPong.set(false);
+            if (!expectingPong.get()) {
+                clientConnection.sendMessage(new PongError(8000));
+            } else {
+                expectingPong.set(false);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -97,10 +153,19 @@ public class PingPongManager {
     }
 
     /**
-     * Stops the ping pong manager thread
+     * Stops sending heartbeats
      */
     public void stop() {
-        scheduler.shutdownNow();
-        scheduler.close();
+        stopped = true;
+
+        HashedWheelTimer.Timeout ping = pingTask;
+        if (ping != null) {
+            ping.cancel();
+        }
+
+        HashedWheelTimer.Timeout pongTimeout = pongTimeoutTask;
+        if (pongTimeout != null) {
+            pongTimeout.cancel();
+        }
     }
 }
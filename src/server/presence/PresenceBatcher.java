@@ -0,0 +1,197 @@
+package server.presence;
+
+import server.ServerExecutors;
+import server.connection.ClientConnection;
+import server.connection.ClientRegistry;
+import server.connection.OutboundFrame;
+import server.constants.ServerConfig;
+import shared.messages.model.server.Joined;
+import shared.messages.model.server.Left;
+import shared.messages.model.server.Presence;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delivers the logins and logouts of users to the other logged in users.
+ * <p>
+ * Clients that negotiated the PRESENCE feature get the changes of a time window of
+ * {@link ServerConfig#PRESENCE_WINDOW} milliseconds as a single PRESENCE message. When thousands of users log in at
+ * the same time, every user gets one message per window instead of one JOINED per other user. A user that logs in
+ * and out again within the window is left out, a user that logs out and in again is listed as left and joined.
+ * Like the individual JOINED and LEFT, a client only gets the changes after its own login and never its own: every
+ * change has a sequence number and a client that logged in during the window gets its own copy with the later
+ * changes only. All other clients share the same PRESENCE frame.
+ * <p>
+ * All other clients still get a JOINED or LEFT per user right away.
+ */
+public class PresenceBatcher {
+    private static final PresenceBatcher instance = new PresenceBatcher();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // the changes per username since the last flush, in the order of the first change
+    private Map<String, List<Change>> pending = new LinkedHashMap<>();
+    private long lastSequence;
+    private boolean flushScheduled;
+
+    private record Change(boolean joined, long sequence) {
+    }
+
+    private PresenceBatcher() {
+    }
+
+    public static PresenceBatcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Marks the first presence change a client gets. Called right before the client is logged in, so it misses none
+     * of the changes that are announced once it is, even if its own login is announced later.
+     * @param client the client that is about to log in
+     */
+    public void loggingIn(ClientConnection client) {
+        lock.lock();
+        try {
+            client.setPresenceSequence(lastSequence + 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Announces a client that just logged in to the other logged in clients.
+     * @param client the client, already logged in
+     */
+    public void joined(ClientConnection client) {
+        sendIndividually(new Joined(client.getUsername()), client);
+        record(client, true);
+    }
+
+    /**
+     * Announces a client that is about to log out to the other logged in clients.
+     * @param client the client, still logged in
+     */
+    public void left(ClientConnection client) {
+        sendIndividually(new Left(client.getUsername()), client);
+        record(client, false);
+    }
+
+    private void sendIndividually(Object message, ClientConnection excluded) {
+        OutboundFrame frame = OutboundFrame.encode(message);
+        for (ClientConnection client : ClientRegistry.getInstance().getLoggedInSnapshot()) {
+            if (client != excluded && !client.isPresenceBatched()) {
+                client.sendFrame(frame);
+            }
+        }
+    }
+
+    private void record(ClientConnection client, boolean joined) {
+        if (ServerConfig.PRESENCE_WINDOW <= 0) {
+            // nobody can have negotiated the feature
+            return;
+        }
+
+        lock.lock();
+        try {
+            long sequence = ++lastSequence;
+            pending.computeIfAbsent(client.getUsername(), username -> new ArrayList<>()).add(new Change(joined, sequence));
+
+            if (!flushScheduled) {
+                flushScheduled = true;
+                // the timer only keeps the time, the fan-out is handed off
+                ServerExecutors.timer().schedule(() -> ServerExecutors.clientExecutor().execute(this::flush),
+                        ServerConfig.PRESENCE_WINDOW, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends the changes of the current window to the clients with the PRESENCE feature.
+     */
+    void flush() {
+        Map<String, List<Change>> batch;
+        lock.lock();
+        try {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+        } finally {
+            lock.unlock();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // the first change of the first user is the first change of the window
+        long firstSequence = batch.values().iterator().next().get(0).sequence();
+        Presence presence = netChanges(batch, firstSequence, null);
+        OutboundFrame frame = isEmpty(presence) ? null : OutboundFrame.encode(presence);
+        for (ClientConnection client : ClientRegistry.getInstance().getLoggedInSnapshot()) {
+            String username = client.getUsername();
+            if (!client.isPresenceBatched() || username == null) {
+                continue;
+            }
+
+            long fromSequence = client.getPresenceSequence();
+            if (fromSequence <= firstSequence && !batch.containsKey(username)) {
+                if (frame != null) {
+                    client.sendFrame(frame);
+                }
+                continue;
+            }
+
+            // the client logged in during the window or is part of the batch itself
+            Presence ownCopy = netChanges(batch, fromSequence, username);
+            if (!isEmpty(ownCopy)) {
+                client.sendFrame(OutboundFrame.encode(ownCopy));
+            }
+        }
+    }
+
+    /**
+     * Sums up the changes of each user from a sequence number on. A user that was not there before its first change
+     * and is there after its last change joined, a user that was there before and after left and joined again.
+     * @param batch the changes per username
+     * @param fromSequence only changes with this or a higher sequence number are counted
+     * @param excluded the username that is left out, null to count all users
+     * @return the users that joined and left
+     */
+    private static Presence netChanges(Map<String, List<Change>> batch, long fromSequence, String excluded) {
+        List<String> joined = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        for (Map.Entry<String, List<Change>> entry : batch.entrySet()) {
+            if (entry.getKey().equals(excluded)) {
+                continue;
+            }
+
+            List<Change> changes = entry.getValue();
+            int first = 0;
+            while (first < changes.size() && changes.get(first).sequence() < fromSequence) {
+                first++;
+            }
+            if (first == changes.size()) {
+                continue;
+            }
+
+            boolean thereBefore = !changes.get(first).joined();
+            boolean thereAfter = changes.get(changes.size() - 1).joined();
+            if (thereAfter) {
+                joined.add(entry.getKey());
+            }
+            if (thereBefore) {
+                left.add(entry.getKey());
+            }
+        }
+        return new Presence(joined, left);
+    }
+
+    private static boolean isEmpty(Presence presence) {
+        return presence.joined().isEmpty() && presence.left().isEmpty();
+    }
+}
@@ -0,0 +1,60 @@
+package server.ratelimit;
+
+import server.connection.ClientConnection;
+import server.errors.ErrorCode;
+import shared.constants.ProtocolCommands;
+import shared.messages.handling.MessageFilter;
+import shared.messages.model.server.BroadcastResp;
+import shared.messages.model.server.PrivateResp;
+import shared.messages.model.server.RPSStartResp;
+import shared.messages.model.server.TransferResp;
+
+/**
+ * A {@link MessageFilter} that applies the {@link RateLimiter} to the messages of a logged-in client.
+ * A message over the limit is answered with an ERROR response with {@link ErrorCode#THROTTLED}
+ * and never reaches its handler, so e.g. a throttled broadcast is not fanned out.
+ * Messages of clients that are not logged in are passed on, their handlers reject them anyway.
+ */
+public class RateLimitFilter implements MessageFilter {
+    private final ClientConnection clientConnection;
+    private final RateLimiter rateLimiter;
+
+    public RateLimitFilter(ClientConnection clientConnection, RateLimiter rateLimiter) {
+        this.clientConnection = clientConnection;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean accept(ProtocolCommands command, Object message) {
+        String username = clientConnection.getUsername();
+        if (username == null || rateLimiter.tryAcquire(username, command)) {
+            return true;
+        }
+
+        clientConnection.sendMessage(throttledResponse(command));
+        return false;
+    }
+
+    /**
+     * Checks whether a command has an ERROR response that tells the client it is throttled.
+     * @param command the command
+     * @return true if the command can be rate limited
+     */
+    static boolean canReject(ProtocolCommands command) {
+        return switch (command) {
+            case BROADCAST_REQ, PRIVATE_REQ, RPS_START_REQ, TRANSFER_REQ -> true;
+            default -> false;
+        };
+    }
+
+    private static Object throttledResponse(ProtocolCommands command) {
+        int code = ErrorCode.THROTTLED.getCode();
+        return switch (command) {
+            case BROADCAST_REQ -> new BroadcastResp("ERROR", code);
+            case PRIVATE_REQ -> new PrivateResp("ERROR", code);
+            case RPS_START_REQ -> new RPSStartResp("ERROR", code, null);
+            case TRANSFER_REQ -> new TransferResp(null, "ERROR", code);
+            default -> throw new IllegalArgumentException("Command can not be rate limited: " + command);
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package server.ratelimit;
+
+import server.ServerExecutors;
+import server.constants.ServerConfig;
+import shared.constants.ProtocolCommands;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how often each logged-in user may send a command, with a rate and a burst per command that are read from
+ * {@link ServerConfig#RATE_LIMITS}. The limit is kept per username, so it survives a reconnect.
+ * <p>
+ * Implements the generic cell rate algorithm (GCRA), which behaves like a token bucket but only needs a single number
+ * per user and command: the theoretical arrival time (TAT) of the next message. A message is allowed if the TAT,
+ * pushed back by one emission interval, is not more than a burst of intervals ahead of now. The TATs of a user are
+ * kept in one {@link AtomicLongArray} indexed by command and updated with compare-and-set, so checking a message
+ * neither allocates nor takes a lock.
+ */
+public class RateLimiter {
+    private static final RateLimiter instance = new RateLimiter(ServerConfig.RATE_LIMITS);
+
+    private final long origin = System.nanoTime();
+    private final long[] emissionIntervals = new long[ProtocolCommands.values().length];
+    private final long[] burstLimits = new long[ProtocolCommands.values().length];
+    private final Map<String, AtomicLongArray> arrivalTimes = new ConcurrentHashMap<>();
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * Creates a rate limiter from a configuration like {@code BROADCAST_REQ=5:20,PRIVATE_REQ=10:40}, which allows
+     * 5 broadcasts per second with bursts of up to 20 and 10 private messages per second with bursts of up to 40.
+     * Commands that are not listed are not limited.
+     * @param configuration the rates and bursts per command
+     */
+    public RateLimiter(String configuration) {
+        for (String entry : configuration.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+
+            String[] parts = entry.trim().split("[=:]");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid rate limit: " + entry);
+            }
+
+            ProtocolCommands command = ProtocolCommands.valueOf(parts[0].trim());
+            double ratePerSecond = Double.parseDouble(parts[1].trim());
+            int burst = Integer.parseInt(parts[2].trim());
+            if (!RateLimitFilter.canReject(command)) {
+                throw new IllegalArgumentException("Command can not be rate limited: " + command);
+            }
+            if (ratePerSecond <= 0 || burst <= 0) {
+                throw new IllegalArgumentException("Rate and burst must be positive: " + entry);
+            }
+
+            long emissionInterval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+            emissionIntervals[command.ordinal()] = emissionInterval;
+            burstLimits[command.ordinal()] = emissionInterval * burst;
+        }
+    }
+
+    public static RateLimiter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Checks whether a user may send a command now and counts the message if so.
+     * @param username the username of the sender
+     * @param command the command of the message
+     * @return true if the message is within the limit
+     */
+    public boolean tryAcquire(String username, ProtocolCommands command) {
+        int index = command.ordinal();
+        long emissionInterval = emissionIntervals[index];
+        if (emissionInterval == 0) {
+            return true;
+        }
+
+        AtomicLongArray userArrivalTimes = arrivalTimes.get(username);
+        if (userArrivalTimes == null) {
+            userArrivalTimes = arrivalTimes.computeIfAbsent(username, key -> new AtomicLongArray(emissionIntervals.length));
+        }
+
+        long now = System.nanoTime() - origin;
+        while (true) {
+            long arrivalTime = userArrivalTimes.get(index);
+            long nextArrivalTime = Math.max(arrivalTime, now) + emissionInterval;
+            if (nextArrivalTime - now > burstLimits[index]) {
+                throttled.increment();
+                return false;
+            }
+
+            if (userArrivalTimes.compareAndSet(index, arrivalTime, nextArrivalTime)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Forgets a user once all of its limits are fully refilled, so the state of users that left does not pile up.
+     * A user that left while still being limited is forgotten once the limit would have run out.
+     * @param username the username of the user that left
+     */
+    public void release(String username) {
+        AtomicLongArray userArrivalTimes = arrivalTimes.get(username);
+        if (userArrivalTimes == null) {
+            return;
+        }
+
+        long remaining = latestArrivalTime(userArrivalTimes) - (System.nanoTime() - origin);
+        if (remaining <= 0) {
+            arrivalTimes.remove(username, userArrivalTimes);
+        } else {
+            ServerExecutors.timer().schedule(() -> release(username), remaining, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Get the number of messages that were over the limit.
+     * @return the number of throttled messages
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    private static long latestArrivalTime(AtomicLongArray userArrivalTimes) {
+        long latest = 0;
+        for (int i = 0; i < userArrivalTimes.length(); i++) {
+            latest = Math.max(latest, userArrivalTimes.get(i));
+        }
+        return latest;
+    }
+}
@@ -0,0 +1,270 @@
+package server.timeout;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel: one thread keeps the time for any number of timeouts.
+ * <p>
+ * The wheel is a ring of buckets, one per tick. A timeout goes into the bucket of the tick it is due in, timeouts
+ * that are due more than one turn of the wheel away wait there for the remaining turns. Every tick the worker
+ * thread runs the due timeouts of one bucket. Scheduling and cancelling only add the timeout to a queue, the worker
+ * moves it into or out of its bucket on the next tick, so both are O(1) and never wait for the worker. A cancelled
+ * timeout is unlinked within a tick, the memory held by the wheel is bounded by the timeouts that are pending.
+ * <p>
+ * Timeouts fire up to one tick late, never early. The tasks run on the worker thread and must not block, anything
+ * that may block is handed off to another executor, see {@link server.ServerExecutors#clientExecutor()}.
+ */
+public class HashedWheelTimer {
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final String name;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+    private final long startTime;
+    private volatile Thread worker;
+    private volatile boolean stopped;
+    private long tick;
+
+    /**
+     * Creates the timer, timeouts only fire once it is {@link #start() started}.
+     * @param name the name of the worker thread
+     * @param tickDuration the duration of a tick, the precision of the timer
+     * @param unit the unit of the tick duration
+     * @param wheelSize the number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Invalid timer wheel: tick " + tickDuration + ", size " + wheelSize);
+        }
+
+        this.name = name;
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Starts the worker thread. Timeouts scheduled before are due relative to the creation of the timer.
+     */
+    public void start() {
+        if (worker != null) {
+            throw new IllegalStateException("Timer " + name + " is already started");
+        }
+        worker = Thread.ofPlatform().name(name).daemon().start(this::run);
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     * @param task the task, runs on the worker thread
+     * @param delay the delay
+     * @param unit the unit of the delay
+     * @return the handle to cancel the timeout
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() - startTime + Math.max(unit.toNanos(delay), 0));
+        pendingTimeouts.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Get the number of timeouts that are neither expired nor cancelled.
+     * @return the number of pending timeouts
+     */
+    public long getPendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * Stops the worker thread, pending timeouts never fire.
+     */
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (!stopped) {
+            long deadline = waitForNextTick();
+            if (stopped) {
+                return;
+            }
+
+            removeCancelled();
+            transferAdded();
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * Waits until the current tick is over.
+     * @return the end of the tick relative to the start of the timer
+     */
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        long remaining;
+        while (!stopped && (remaining = deadline - (System.nanoTime() - startTime)) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+        return deadline;
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferAdded() {
+        // bounded, a flood of new timeouts must not hold up the ones that are due
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = added.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() != Timeout.PENDING) {
+                continue;
+            }
+
+            long dueTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (dueTick - tick) / wheel.length;
+            // a timeout that is already due goes into the current bucket
+            wheel[(int) (Math.max(dueTick, tick) & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * A scheduled task, can be cancelled until it ran.
+     */
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // only used by the worker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout previous;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout, the task does not run unless it already started.
+         * @return true if the timeout was cancelled, false if it already ran or was cancelled before
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            timer.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+
+            try {
+                task.run();
+            } catch (Throwable e) {
+                System.err.println("Timer task failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The timeouts of one tick of the wheel, a doubly linked list so a timeout is unlinked in O(1).
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.next = null;
+            timeout.previous = null;
+        }
+
+        /**
+         * Runs the timeouts that are due by the end of the current tick, the others wait for another turn.
+         * @param deadline the end of the current tick
+         */
+        void expire(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
@@ -1,21 +1,21 @@
 package server.timeout;
 
+import server.ServerExecutors;
+import server.jfr.TimeoutFiredEvent;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Manages timeouts for a session.
- * Uses a {@link ScheduledExecutorService} to schedule a task that will call the {@link TimeoutHandler#onTimeout(Object)} method
+ * Uses the {@link HashedWheelTimer} shared by all sessions to schedule a task that will call the
+ * {@link TimeoutHandler#onTimeout(Object)} method, a pending timeout costs no thread. The timer only keeps the time,
+ * the handler runs on the {@link ServerExecutors#clientExecutor()}.
  * @param <T> The type of the object (session) that the timeout handler is handling*
  */
 public class TimeoutManager<T> {
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
     private final T session;
     private final TimeoutHandler<T> timeoutHandler;
-    private ScheduledFuture<?> timeoutTask;
+    private volatile HashedWheelTimer.Timeout timeoutTask;
 
     public TimeoutManager(T session, TimeoutHandler<T> timeoutHandler) {
         this.session = session;
@@ -28,22 +28,35 @@ public class TimeoutManager<T> {
      * @param timeUnit time unit
      */
     public void startTimeout(long timeout, TimeUnit timeUnit) {
-        timeoutTask = scheduler.schedule(() -> {
-            synchronized (session) {
-                if (!timeoutHandler.isConditionFulfilled(session)) {
-                    timeoutHandler.onTimeout(session);
-                }
+        timeoutTask = ServerExecutors.timer().schedule(() -> ServerExecutors.clientExecutor().execute(this::fire),
+                timeout, timeUnit);
+    }
+
+    private void fire() {
+        TimeoutFiredEvent event = new TimeoutFiredEvent();
+        event.begin();
+        boolean expired;
+        synchronized (session) {
+            expired = !timeoutHandler.isConditionFulfilled(session);
+            if (expired) {
+                timeoutHandler.onTimeout(session);
             }
-        }, timeout, timeUnit);
+        }
+
+        if (event.shouldCommit()) {
+            event.handler = timeoutHandler.getClass().getSimpleName();
+            event.expired = expired;
+            event.commit();
+        }
     }
 
     /**
-     * Stop the timeout task and shutdown the scheduler
+     * Stop the timeout task
      */
     public void stop() {
-        if (timeoutTask != null) {
-            timeoutTask.cancel(false);
+        HashedWheelTimer.Timeout task = timeoutTask;
+        if (task != null) {
+            task.cancel();
         }
-        scheduler.shutdown();
     }
 }
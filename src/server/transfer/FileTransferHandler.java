@@ -1,5 +1,6 @@
 package server.transfer;
 
+import server.jfr.FileTransferEvent;
 import server.model.TransferSession;
 
 import java.io.BufferedOutputStream;
@@ -82,17 +83,42 @@ public class FileTransferHandler implements Runnable {
      * @param session The transfer session.
      */
     private void transferFile(TransferSession session) {
+        FileTransferEvent event = new FileTransferEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long bytes = 0;
+        boolean completed = false;
         try (InputStream senderStream = session.getSenderInputStream();
              OutputStream receiverStream = new BufferedOutputStream(session.getReceiverOutputStream())) {
-            senderStream.transferTo(receiverStream);
+            bytes = senderStream.transferTo(receiverStream);
             receiverStream.flush();
+            completed = true;
         } catch (Exception e) {
             //
         } finally {
             closeStreams(session);
+            commitEvent(event, session, bytes, System.nanoTime() - start, completed);
         }
     }
 
+    /**
+     * Records the transfer as a JFR event, if the event is enabled.
+     */
+    private void commitEvent(FileTransferEvent event, TransferSession session, long bytes, long nanos, boolean completed) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+
+        event.sessionId = session.getId();
+        event.sender = session.getSender();
+        event.receiver = session.getReceiver();
+        event.filename = session.getFilename();
+        event.bytes = bytes;
+        event.throughput = (long) (bytes * 1e9 / Math.max(nanos, 1));
+        event.completed = completed;
+        event.commit();
+    }
+
     /**
      * Closes the input and output streams.
      * @param session The transfer session.
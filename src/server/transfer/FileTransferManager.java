@@ -171,4 +171,19 @@ public class FileTransferManager {
         return activeTransfers.stream().anyMatch(session -> session.getSender().equals(username) || session.getReceiver().equals(username));
     }
 
+    /**
+     * Get the number of transfer requests that were not accepted or rejected yet.
+     * @return the number of pending sessions
+     */
+    public int getPendingSessionCount() {
+        return pendingTransfers.size();
+    }
+
+    /**
+     * Get the number of accepted transfers that are in progress.
+     * @return the number of active sessions
+     */
+    public int getActiveSessionCount() {
+        return activeTransfers.size();
+    }
 }
@@ -7,17 +7,20 @@ import shared.constants.ConsoleColors;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.Executor;
 
 /**
  * The file transfer server class is responsible for starting
  * the file transfer server and handling incoming file transfer connections.
- * For each incoming connection, a new {@link FileTransferHandler} is started in a separate thread.
+ * For each incoming connection, a new {@link FileTransferHandler} is run on the given executor.
  */
 public class FileTransferServer implements Runnable{
     private final int port;
+    private final Executor handlerExecutor;
 
-    public FileTransferServer(int port) {
+    public FileTransferServer(int port, Executor handlerExecutor) {
         this.port = port;
+        this.handlerExecutor = handlerExecutor;
     }
 
     /**
@@ -39,7 +42,7 @@ public class FileTransferServer implements Runnable{
                         .build());
 
 
-                new Thread(new FileTransferHandler(clientSocket)).start();
+                handlerExecutor.execute(new FileTransferHandler(clientSocket));
             }
         } catch (IOException e) {
             System.err.println("Error starting file transfer server: " + e.getMessage());
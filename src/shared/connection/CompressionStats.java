@@ -0,0 +1,54 @@
+package shared.connection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the bytes before and after compression and the time spent on it, for one direction of one connection.
+ * For outgoing data the plain bytes are the input and the compressed bytes the output, for incoming data it is the
+ * other way around. Used for the report of what the compression saves and what it costs.
+ */
+public class CompressionStats {
+    private final LongAdder plainBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    /**
+     * Records one compressed or decompressed chunk.
+     * @param plainByteCount the number of uncompressed bytes
+     * @param compressedByteCount the number of compressed bytes
+     * @param elapsedNanos the time spent on the chunk
+     */
+    public void record(long plainByteCount, long compressedByteCount, long elapsedNanos) {
+        plainBytes.add(plainByteCount);
+        compressedBytes.add(compressedByteCount);
+        nanos.add(elapsedNanos);
+    }
+
+    public long getPlainBytes() {
+        return plainBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    public long getNanos() {
+        return nanos.sum();
+    }
+
+    /**
+     * Get the share of the plain bytes that was saved by the compression.
+     * @return the saving between 0 and 1, negative if the compressed data is larger, 0 if nothing was recorded
+     */
+    public double getSavings() {
+        long plain = plainBytes.sum();
+        return plain == 0 ? 0 : 1 - (double) compressedBytes.sum() / plain;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d -> %d bytes, %.1f%% saved, %.2f ms CPU",
+                getPlainBytes(), getCompressedBytes(), getSavings() * 100, getNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -1,5 +1,7 @@
 package shared.connection;
 
+import shared.constants.WireFormat;
+
 import java.net.Socket;
 
 /**
@@ -11,4 +13,29 @@ public interface Connection {
     boolean isConnected();
     Socket getSocket();
     void closeConnection();
+
+    /**
+     * Get the wire format of the messages received on this connection.
+     * The {@link shared.messages.handling.MessageParser} switches its decoder when it changes.
+     * @return the wire format, {@link WireFormat#TEXT} unless the client negotiated another one
+     */
+    default WireFormat getWireFormat() {
+        return WireFormat.TEXT;
+    }
+
+    /**
+     * Checks if the messages received on this connection are compressed, see {@link StreamDecompressor}.
+     * @return true once the connection negotiated compression
+     */
+    default boolean isCompressed() {
+        return false;
+    }
+
+    /**
+     * Get the statistics of the decompression of the received bytes, filled by the parser once compression is enabled.
+     * @return the decompression statistics
+     */
+    default CompressionStats getInboundCompressionStats() {
+        return new CompressionStats();
+    }
 }
\ No newline at end of file
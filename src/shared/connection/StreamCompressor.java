@@ -0,0 +1,93 @@
+package shared.connection;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses the outgoing bytes of a connection as one raw deflate stream. The {@link Deflater} lives as long as the
+ * connection, so later messages are compressed against the dictionary of the earlier ones, which is what makes small
+ * messages like a single BROADCAST compress well. Every batch ends with a sync flush, so the peer can decompress all
+ * of it right away without waiting for more data.
+ * A compressor is not thread safe, it belongs to the single writer of a connection.
+ */
+public class StreamCompressor {
+    private final Deflater deflater;
+    private final CompressionStats stats;
+    private byte[] output = new byte[4096];
+    private int outputLength;
+    private long pendingPlainBytes;
+    private long pendingNanos;
+
+    /**
+     * Creates a compressor.
+     * @param level the deflate level from 1 (fastest) to 9 (smallest)
+     * @param stats the statistics to record the compression in
+     */
+    public StreamCompressor(int level, CompressionStats stats) {
+        this.deflater = new Deflater(level, true);
+        this.stats = stats;
+    }
+
+    /**
+     * Compresses bytes into the pending output without flushing.
+     * @param bytes the buffer that holds the bytes
+     * @param offset the start of the bytes
+     * @param length the number of bytes
+     */
+    public void write(byte[] bytes, int offset, int length) {
+        long started = System.nanoTime();
+        deflater.setInput(bytes, offset, length);
+        while (!deflater.needsInput()) {
+            deflate(Deflater.NO_FLUSH);
+        }
+        pendingPlainBytes += length;
+        pendingNanos += System.nanoTime() - started;
+    }
+
+    /**
+     * Sync flushes the stream and returns everything compressed since the last flush. The returned buffer is only
+     * valid until the next call to {@link #write(byte[], int, int)}.
+     * @return the compressed bytes
+     */
+    public ByteBuffer flush() {
+        long started = System.nanoTime();
+        // deflate fills the output completely as long as there is more to flush
+        do {
+            deflate(Deflater.SYNC_FLUSH);
+        } while (outputLength == output.length);
+
+        int length = outputLength;
+        stats.record(pendingPlainBytes, length, pendingNanos + System.nanoTime() - started);
+        outputLength = 0;
+        pendingPlainBytes = 0;
+        pendingNanos = 0;
+        return ByteBuffer.wrap(output, 0, length);
+    }
+
+    /**
+     * Compresses bytes and sync flushes the stream, see {@link #write(byte[], int, int)} and {@link #flush()}.
+     * @param bytes the buffer that holds the bytes
+     * @param offset the start of the bytes
+     * @param length the number of bytes
+     * @return the compressed bytes, only valid until the next call
+     */
+    public ByteBuffer compress(byte[] bytes, int offset, int length) {
+        write(bytes, offset, length);
+        return flush();
+    }
+
+    /**
+     * Releases the native resources of the deflater.
+     */
+    public void end() {
+        deflater.end();
+    }
+
+    private void deflate(int flush) {
+        if (outputLength == output.length) {
+            output = Arrays.copyOf(output, output.length * 2);
+        }
+        outputLength += deflater.deflate(output, outputLength, output.length - outputLength, flush);
+    }
+}
@@ -0,0 +1,62 @@
+package shared.connection;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses the incoming raw deflate stream of a connection, the counterpart of {@link StreamCompressor}.
+ * The output is produced in chunks of a fixed size, so a small compressed message that inflates to a huge one
+ * never makes the decompressor allocate more than one chunk; the frame decoder limits the message size.
+ * A decompressor is not thread safe, it belongs to the single reader of a connection.
+ */
+public class StreamDecompressor {
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final Inflater inflater = new Inflater(true);
+    private final CompressionStats stats;
+    private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+
+    /**
+     * Creates a decompressor.
+     * @param stats the statistics to record the decompression in
+     */
+    public StreamDecompressor(CompressionStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Takes the compressed bytes that were received. The bytes are consumed by the following calls to
+     * {@link #next()}, which must be repeated until it returns an empty chunk before the buffer is reused.
+     * @param bytes the compressed bytes
+     */
+    public void setInput(ByteBuffer bytes) {
+        inflater.setInput(bytes);
+    }
+
+    /**
+     * Decompresses the next chunk of the input.
+     * @return the decompressed bytes, only valid until the next call, empty once all input is consumed
+     * @throws DataFormatException if the input is not a valid deflate stream
+     */
+    public ByteBuffer next() throws DataFormatException {
+        long started = System.nanoTime();
+        long compressedBefore = inflater.getBytesRead();
+
+        chunk.clear();
+        if (!inflater.needsInput()) {
+            inflater.inflate(chunk);
+        }
+        chunk.flip();
+
+        stats.record(chunk.remaining(), inflater.getBytesRead() - compressedBefore, System.nanoTime() - started);
+        return chunk;
+    }
+
+    /**
+     * Releases the native resources of the inflater.
+     */
+    public void end() {
+        inflater.end();
+    }
+}
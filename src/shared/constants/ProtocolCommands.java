@@ -2,6 +2,7 @@ package shared.constants;
 
 /**
  * Enum representing all possible commands that can be sent between the client and the server.
+ * The ordinal is the command byte of the binary wire format, so new commands are only ever added at the end.
  */
 public enum ProtocolCommands {
     UNKNOWN_COMMAND,
@@ -44,4 +45,7 @@ public enum ProtocolCommands {
     TRANSFER_CHECKSUM,
     TRANSFER_FAILED,
     TRANSFER_SUCCESS,
+    FEATURE_REQ,
+    FEATURE_RESP,
+    PRESENCE,
 }
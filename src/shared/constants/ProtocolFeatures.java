@@ -0,0 +1,33 @@
+package shared.constants;
+
+/**
+ * Optional protocol features a client can ask for with FEATURE_REQ right after READY.
+ */
+public enum ProtocolFeatures {
+    /**
+     * Switch both directions of the connection to the {@link WireFormat#BINARY} wire format.
+     */
+    BINARY,
+    /**
+     * Compress both directions of the connection as one deflate stream, see {@link shared.connection.StreamCompressor}.
+     */
+    DEFLATE,
+    /**
+     * Receive JOINED and LEFT as one PRESENCE message per time window instead of one message per user.
+     */
+    PRESENCE;
+
+    /**
+     * Looks up a feature by its name.
+     * @param name the name of the feature
+     * @return the feature or null if the feature is unknown
+     */
+    public static ProtocolFeatures fromName(String name) {
+        for (ProtocolFeatures feature : values()) {
+            if (feature.name().equals(name)) {
+                return feature;
+            }
+        }
+        return null;
+    }
+}
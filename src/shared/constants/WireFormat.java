@@ -0,0 +1,16 @@
+package shared.constants;
+
+/**
+ * The encodings of messages on a connection. Every connection starts with {@link #TEXT} and may switch to
+ * {@link #BINARY} once, see {@link ProtocolFeatures#BINARY}.
+ */
+public enum WireFormat {
+    /**
+     * Lines in the format {@code <command> <json payload>}, terminated by a line feed.
+     */
+    TEXT,
+    /**
+     * Length prefixed frames holding the command ordinal and the message fields, see {@link shared.utils.BinaryCodec}.
+     */
+    BINARY
+}
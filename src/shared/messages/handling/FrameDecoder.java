@@ -0,0 +1,46 @@
+package shared.messages.handling;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a stream of bytes into frames, one frame per message. A decoder keeps state between calls and belongs
+ * to a single connection. See {@link LineFrameDecoder} for the text and {@link LengthFrameDecoder} for the binary
+ * wire format.
+ */
+public interface FrameDecoder {
+    /**
+     * Receives the frames found by a decoder. The frame bytes are only valid during the call.
+     */
+    interface FrameHandler {
+        /**
+         * Called for every complete frame.
+         * @param frame - the buffer that holds the frame
+         * @param offset - the start of the frame in the buffer
+         * @param length - the length of the frame
+         * @return false to stop decoding right after this frame, e.g. because the wire format changed and the
+         * remaining bytes belong to another decoder
+         */
+        boolean onFrame(byte[] frame, int offset, int length);
+
+        /**
+         * Called once for every frame that is longer than the maximum frame length. The frame is discarded.
+         */
+        void onOversizedFrame();
+
+        /**
+         * Called when the stream can not be split into frames any more, e.g. because of a malformed length prefix.
+         * Nothing after it is decoded.
+         */
+        default void onCorruptStream() {
+            onOversizedFrame();
+        }
+    }
+
+    /**
+     * Decodes the remaining bytes of the buffer. Complete frames are handed to the handler, a trailing incomplete
+     * frame is kept until the next call.
+     * @param bytes - the bytes read from the socket, consumed completely unless the handler stopped decoding
+     * @param handler - the handler for the complete frames
+     */
+    void decode(ByteBuffer bytes, FrameHandler handler);
+}
@@ -0,0 +1,125 @@
+package shared.messages.handling;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits a stream of bytes into frames that are prefixed with their length as an unsigned varint, the framing of the
+ * binary wire format (see {@link shared.utils.BinaryCodec}). Like the {@link LineFrameDecoder}, a frame that arrives
+ * completely within one heap buffer is handed to the {@link FrameHandler} as a slice of that buffer without copying,
+ * only fragmented frames are collected in an internal buffer. A frame longer than the maximum frame length is
+ * skipped without buffering it, its length is known up front.
+ * A decoder keeps state between calls and belongs to a single connection.
+ */
+public class LengthFrameDecoder implements FrameDecoder {
+    private static final int MAX_LENGTH_PREFIX_BYTES = 5;
+
+    private final int maxFrameLength;
+    private byte[] partialFrame = new byte[256];
+    private int partialLength;
+    // the length of the current frame, -1 while the length prefix is read
+    private int frameLength = -1;
+    private int lengthPrefix;
+    private int lengthPrefixBytes;
+    private long skipping;
+    private boolean corrupt;
+
+    public LengthFrameDecoder() {
+        this(LineFrameDecoder.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public LengthFrameDecoder(int maxFrameLength) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("Maximum frame length must be positive");
+        }
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    public void decode(ByteBuffer bytes, FrameHandler handler) {
+        while (bytes.hasRemaining()) {
+            if (corrupt) {
+                bytes.position(bytes.limit());
+                return;
+            }
+
+            if (skipping > 0) {
+                int skipped = (int) Math.min(skipping, bytes.remaining());
+                bytes.position(bytes.position() + skipped);
+                skipping -= skipped;
+                continue;
+            }
+
+            if (frameLength == -1) {
+                if (!readLengthPrefix(bytes, handler)) {
+                    continue;
+                }
+                if (frameLength > maxFrameLength) {
+                    skipping = frameLength;
+                    frameLength = -1;
+                    handler.onOversizedFrame();
+                    continue;
+                }
+            }
+
+            if (partialLength == 0 && bytes.hasArray() && bytes.remaining() >= frameLength) {
+                int offset = bytes.arrayOffset() + bytes.position();
+                int length = frameLength;
+                bytes.position(bytes.position() + length);
+                frameLength = -1;
+                if (!handler.onFrame(bytes.array(), offset, length)) {
+                    return;
+                }
+                continue;
+            }
+
+            int length = Math.min(frameLength - partialLength, bytes.remaining());
+            if (partialLength + length > partialFrame.length) {
+                partialFrame = Arrays.copyOf(partialFrame, Math.max(frameLength, partialFrame.length * 2));
+            }
+            bytes.get(partialFrame, partialLength, length);
+            partialLength += length;
+
+            if (partialLength == frameLength) {
+                int completeLength = partialLength;
+                partialLength = 0;
+                frameLength = -1;
+                if (!handler.onFrame(partialFrame, 0, completeLength)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads bytes of the length prefix, which may be split over several reads as well.
+     * @return true once the prefix is complete and the frame length is set
+     */
+    private boolean readLengthPrefix(ByteBuffer bytes, FrameHandler handler) {
+        while (bytes.hasRemaining()) {
+            int b = bytes.get() & 0xFF;
+            lengthPrefix |= (b & 0x7F) << (7 * lengthPrefixBytes);
+            lengthPrefixBytes++;
+
+            boolean last = (b & 0x80) == 0;
+            // the fifth byte only holds the top bits of a non-negative int
+            boolean fits = lengthPrefixBytes < MAX_LENGTH_PREFIX_BYTES || b <= 0x07;
+            if (last && fits) {
+                frameLength = lengthPrefix;
+                lengthPrefix = 0;
+                lengthPrefixBytes = 0;
+                return true;
+            }
+
+            if (last || lengthPrefixBytes == MAX_LENGTH_PREFIX_BYTES) {
+                // longer than an int, nothing after it can be trusted
+                corrupt = true;
+                handler.onCorruptStream();
+                return false;
+            }
+        }
+
+        // the rest of the prefix arrives with the next read
+        return false;
+    }
+}
@@ -0,0 +1,128 @@
+package shared.messages.handling;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits a stream of bytes into lines (frames) terminated by {@code \n}, a {@code \r} right before it is stripped.
+ * The decoder is fed whatever was read from the socket, so a line may arrive in pieces or several lines at once.
+ * A line that arrives completely within one heap buffer is handed to the {@link FrameHandler} as a slice of that
+ * buffer without copying, only the pieces of a fragmented line are collected in an internal buffer.
+ * Lines longer than the maximum frame length are discarded up to their line end, so a client can not make the
+ * decoder buffer an unbounded amount of memory.
+ * A decoder keeps state between calls and belongs to a single connection.
+ */
+public class LineFrameDecoder implements FrameDecoder {
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024 * 1024;
+
+    private final int maxFrameLength;
+    private byte[] partialFrame = new byte[256];
+    private int partialLength;
+    private boolean discarding;
+
+    public LineFrameDecoder() {
+        this(DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public LineFrameDecoder(int maxFrameLength) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("Maximum frame length must be positive");
+        }
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    /**
+     * Decodes the remaining bytes of the buffer. Complete lines are handed to the handler,
+     * a trailing incomplete line is kept until the next call.
+     * @param bytes - the bytes read from the socket, consumed completely unless the handler stopped decoding
+     * @param handler - the handler for the complete lines
+     */
+    @Override
+    public void decode(ByteBuffer bytes, FrameHandler handler) {
+        while (bytes.hasRemaining()) {
+            int lineEnd = indexOfLineEnd(bytes);
+            if (lineEnd == -1) {
+                appendPartial(bytes, bytes.remaining(), handler);
+                return;
+            }
+
+            int length = lineEnd - bytes.position();
+            if (discarding) {
+                // the rest of an oversized line, it was reported already
+                discarding = false;
+                bytes.position(lineEnd + 1);
+            } else if (partialLength + length > maxFrameLength) {
+                partialLength = 0;
+                bytes.position(lineEnd + 1);
+                handler.onOversizedFrame();
+            } else if (partialLength == 0 && bytes.hasArray()) {
+                int offset = bytes.arrayOffset() + bytes.position();
+                bytes.position(lineEnd + 1);
+                if (!emit(bytes.array(), offset, length, handler)) {
+                    return;
+                }
+            } else {
+                appendPartial(bytes, length, handler);
+                bytes.get(); // the line separator
+                int frameLength = partialLength;
+                partialLength = 0;
+                if (!emit(partialFrame, 0, frameLength, handler)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private int indexOfLineEnd(ByteBuffer bytes) {
+        if (bytes.hasArray()) {
+            byte[] array = bytes.array();
+            int offset = bytes.arrayOffset();
+            for (int i = bytes.position(); i < bytes.limit(); i++) {
+                if (array[offset + i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            if (bytes.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies a piece of a fragmented line into the partial frame. Switches to discarding once the line
+     * grows beyond the maximum frame length.
+     */
+    private void appendPartial(ByteBuffer bytes, int length, FrameHandler handler) {
+        if (discarding) {
+            bytes.position(bytes.position() + length);
+            return;
+        }
+
+        int required = partialLength + length;
+        if (required > maxFrameLength) {
+            partialLength = 0;
+            discarding = true;
+            bytes.position(bytes.position() + length);
+            handler.onOversizedFrame();
+            return;
+        }
+
+        if (required > partialFrame.length) {
+            partialFrame = Arrays.copyOf(partialFrame, Math.min(maxFrameLength, Math.max(required, partialFrame.length * 2)));
+        }
+        bytes.get(partialFrame, partialLength, length);
+        partialLength = required;
+    }
+
+    private boolean emit(byte[] frame, int offset, int length, FrameHandler handler) {
+        if (length > 0 && frame[offset + length - 1] == '\r') {
+            length--;
+        }
+        return handler.onFrame(frame, offset, length);
+    }
+}
@@ -0,0 +1,17 @@
+package shared.messages.handling;
+
+import shared.constants.ProtocolCommands;
+
+/**
+ * A filter that is consulted by the {@link MessageParser} after a message was parsed and before it is dispatched to
+ * its {@link MessageHandler}. A filter that rejects a message is responsible for answering the sender itself.
+ */
+public interface MessageFilter {
+    /**
+     * Decides whether a message is dispatched to its handler.
+     * @param command - the command of the message
+     * @param message - the parsed message
+     * @return true if the message is dispatched, false if it is rejected
+     */
+    boolean accept(ProtocolCommands command, Object message);
+}
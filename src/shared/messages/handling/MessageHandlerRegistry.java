@@ -2,20 +2,43 @@ package shared.messages.handling;
 
 import shared.constants.ProtocolCommands;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * An utility class that holds the handlers for the messages that the server can handle.
  * Uses {@link ProtocolCommands} as keys and {@link MessageHandler} as values.
+ * Also holds the {@link MessageFilter}s that are consulted before a message is dispatched.
  */
 public class MessageHandlerRegistry {
     private final Map<ProtocolCommands, MessageHandler<?>> handlers = new HashMap<>();
+    private final List<MessageFilter> filters = new ArrayList<>();
 
     public void registerHandler(ProtocolCommands command, MessageHandler<?> handler) {
         handlers.put(command, handler);
     }
 
+    public void registerFilter(MessageFilter filter) {
+        filters.add(filter);
+    }
+
+    /**
+     * Asks the registered filters, in registration order, whether a message is dispatched.
+     * @param command - the command of the message
+     * @param message - the parsed message
+     * @return true if all filters accept the message
+     */
+    public boolean accept(ProtocolCommands command, Object message) {
+        for (int i = 0; i < filters.size(); i++) {
+            if (!filters.get(i).accept(command, message)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @SuppressWarnings("unchecked")
     public <T> MessageHandler<T> getHandler(ProtocolCommands command) {
         return (MessageHandler<T>) handlers.get(command);
@@ -1,52 +1,65 @@
 package shared.messages.handling;
 
-import server.connection.ClientRegistry;
-import server.logger.LogEntry;
-import server.logger.ServerLogger;
 import shared.connection.Connection;
-import shared.constants.ConsoleColors;
+import shared.connection.StreamDecompressor;
 import shared.constants.ProtocolCommands;
+import shared.constants.WireFormat;
+import shared.utils.BinaryCodec;
 import shared.utils.JsonUtils;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
 
 /**
  * The MessageParser class is responsible for parsing incoming messages and invoking the appropriate handler.
- * Can be instantiated as a server or client parser. Based on the type, it will log the incoming messages.
+ * Can be instantiated as a server or client parser, what differs (logging, metrics, error responses and the maximum
+ * frame length) is supplied by a {@link ParserListener}.
  * Uses provided {@link MessageHandlerRegistry} to retrieve the appropriate handler for the incoming message.
+ * Incoming bytes are split into lines by a {@link LineFrameDecoder} and parsed straight from the byte frames.
+ * Once the connection switched to the {@link WireFormat#BINARY} wire format, the following bytes are split by a
+ * {@link LengthFrameDecoder} and parsed by the {@link BinaryCodec} instead. Once the connection negotiated compression,
+ * the following bytes are decompressed by a {@link StreamDecompressor} before they are framed.
  */
-public class MessageParser implements Runnable {
+public class MessageParser implements Runnable, FrameDecoder.FrameHandler {
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
     private final Connection connection;
     private final MessageHandlerRegistry registry;
-    private final boolean isServer;
+    private final ParserListener listener;
+    private final int maxFrameLength;
+    private FrameDecoder decoder;
+    private WireFormat wireFormat = WireFormat.TEXT;
+    private StreamDecompressor decompressor;
 
-    public MessageParser(Connection connection, MessageHandlerRegistry registry, boolean isServer) {
+    public MessageParser(Connection connection, MessageHandlerRegistry registry, ParserListener listener) {
         this.connection = connection;
         this.registry = registry;
-        this.isServer = isServer;
+        this.listener = listener;
+        this.maxFrameLength = listener.getMaxFrameLength();
+        this.decoder = new LineFrameDecoder(maxFrameLength);
     }
 
     public MessageParser(Connection connection, MessageHandlerRegistry registry) {
-        this(connection, registry, false);
+        this(connection, registry, ParserListener.NONE);
     }
 
     @Override
     public void run() {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getSocket().getInputStream()))) {
-            String line;
-
-            while (connection.isConnected() && (line = reader.readLine()) != null) {
-                // Normalize the line (trim any extra whitespaces)
-                String message = line.trim();
+        try {
+            // not closed here, closing the stream closes the socket before the pending replies are written,
+            // the connection closes the socket in the finally block
+            InputStream in = connection.getSocket().getInputStream();
+            byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+            ByteBuffer bytes = ByteBuffer.wrap(readBuffer);
+            int bytesRead;
 
-                // Ignore empty lines (in case of extra line breaks)
-                if (!message.isEmpty()) {
-                    handleIncomingMessage(message);
-                }
+            while (connection.isConnected() && (bytesRead = in.read(readBuffer)) != -1) {
+                bytes.clear().limit(bytesRead);
+                decode(bytes);
             }
         } catch (SocketException e) {
             if (connection.isConnected()) {
@@ -54,71 +67,161 @@ public class MessageParser implements Runnable {
                 connection.closeConnection();
             }
         } catch (Exception e) {
-            ServerLogger.log(new LogEntry.Builder()
-                    .logType(ServerLogger.LogType.MESSAGE)
-                    .clientAddress(String.valueOf(connection.getSocket().getInetAddress().getHostAddress()))
-                    .clientPort(connection.getSocket().getPort())
-                    .message(e.getMessage())
-                    .color(ConsoleColors.RED.getColor())
-                    .build());
+            listener.onReadFailed(e);
         } finally {
             connection.closeConnection();
+            close();
+        }
+    }
+
+    /**
+     * Releases the decompressor of the connection. Must be called by the thread that decodes, after the last decode.
+     */
+    public void close() {
+        if (decompressor != null) {
+            decompressor.end();
+            decompressor = null;
         }
     }
 
+    /**
+     * Decodes bytes received from the connection and handles every complete message. Used by the blocking read loop
+     * in {@link #run()} and by event loops that read the socket themselves.
+     * If a message switches the wire format, the bytes after it are decoded in the new format.
+     *
+     * @param bytes - the received bytes, consumed completely
+     */
+    public void decode(ByteBuffer bytes) {
+        listener.onBytesReceived(bytes.remaining());
+
+        while (bytes.hasRemaining() && connection.isConnected()) {
+            if (decompressor == null) {
+                decoder.decode(bytes, this);
+                continue;
+            }
+
+            decompressor.setInput(bytes);
+            try {
+                ByteBuffer chunk;
+                while ((chunk = decompressor.next()).hasRemaining()) {
+                    do {
+                        decoder.decode(chunk, this);
+                    } while (chunk.hasRemaining() && connection.isConnected());
+                }
+            } catch (DataFormatException e) {
+                onCorruptStream();
+            }
+            // anything after the end of the compressed stream is ignored
+            bytes.position(bytes.limit());
+        }
+    }
+
+    @Override
+    public boolean onFrame(byte[] frame, int offset, int length) {
+        // Messages that arrive after the connection was closed (e.g. after BYE) are ignored
+        if (!connection.isConnected()) {
+            return true;
+        }
+
+        if (wireFormat == WireFormat.BINARY) {
+            // an empty binary frame carries no command, like an empty line
+            if (length > 0) {
+                handleIncomingMessage(frame, offset, length);
+            }
+        } else {
+            // Ignore empty lines (in case of extra line breaks)
+            int end = offset + length;
+            while (offset < end && (frame[offset] & 0xFF) <= ' ') {
+                offset++;
+            }
+            if (offset < end) {
+                handleIncomingMessage(frame, offset, end - offset);
+            }
+        }
+
+        return !switchDecoder();
+    }
+
+    /**
+     * Switches the decoder if the handled message changed the wire format or the compression of the connection,
+     * e.g. FEATURE_REQ.
+     * @return true if the decoding of the following bytes changed
+     */
+    private boolean switchDecoder() {
+        boolean switched = false;
+        WireFormat connectionWireFormat = connection.getWireFormat();
+        if (connectionWireFormat != wireFormat) {
+            wireFormat = connectionWireFormat;
+            decoder = wireFormat == WireFormat.BINARY ? new LengthFrameDecoder(maxFrameLength) : new LineFrameDecoder(maxFrameLength);
+            switched = true;
+        }
+
+        if (decompressor == null && connection.isCompressed()) {
+            decompressor = new StreamDecompressor(connection.getInboundCompressionStats());
+            switched = true;
+        }
+        return switched;
+    }
+
+    @Override
+    public void onOversizedFrame() {
+        listener.onOversizedFrame();
+    }
+
+    @Override
+    public void onCorruptStream() {
+        listener.onCorruptStream();
+        connection.closeConnection();
+    }
+
     /**
      * Handles an incoming message by parsing it and calling the appropriate handler.
-     * Logs the message if the message is incoming from a client.
+     * Logs the message if the {@link ParserListener} asks for it.
      *
-     * @param message - the raw json message
+     * @param frame - the buffer that holds the raw message
+     * @param offset - the start of the message
+     * @param length - the length of the message
      */
-    private void handleIncomingMessage(String message) throws IOException {
-        if (isServer) {
-            logMessage(message);
+    private void handleIncomingMessage(byte[] frame, int offset, int length) {
+        boolean binary = wireFormat == WireFormat.BINARY;
+        boolean logged = listener.isLoggingMessages();
+        if (logged && !binary) {
+            listener.logMessage(new String(frame, offset, length, StandardCharsets.UTF_8));
         }
 
+        Object context = listener.beforeMessage();
         try {
             // Parse the message into the appropriate object
-            Object parsedMessage = JsonUtils.messageToClass(message);
+            Object parsedMessage = binary
+                    ? BinaryCodec.frameToClass(frame, offset, length)
+                    : JsonUtils.messageToClass(frame, offset, length);
+            if (logged && binary) {
+                // binary messages are logged in their text form, rendered by the logger thread
+                Supplier<String> text = () -> JsonUtils.classToMessage(parsedMessage);
+                listener.logMessage(text);
+            }
 
             // Determine the command from the parsed message class
             ProtocolCommands command = JsonUtils.getCommandFromClass(parsedMessage.getClass());
+            listener.onReceived(command);
+
+            // Let the filters reject the message before it is handled
+            if (!registry.accept(command, parsedMessage)) {
+                return;
+            }
 
             // Retrieve and invoke the handler
             MessageHandler<?> handler = registry.getHandler(command);
             if (handler != null) {
                 MessageHandler<Object> typedHandler = (MessageHandler<Object>) handler;
+                long start = System.nanoTime();
                 typedHandler.handle(parsedMessage);
+                listener.onHandled(context, command, length, binary, System.nanoTime() - start);
             } else {
                 System.err.println("No handler registered for command: " + command);
             }
         } catch (Exception e) {
-            if (e.getMessage() != null && isServer) {
-                PrintWriter out = new PrintWriter(connection.getSocket().getOutputStream(), true);
-                if (e.getMessage().contains("Unknown command")) {
-                    out.println(ProtocolCommands.UNKNOWN_COMMAND);
-                } else if (e.getMessage().contains("Failed to parse message content")) {
-                    out.println(ProtocolCommands.PARSE_ERROR);
-                }
-            }
+            listener.onMessageError(e);
         }
     }
-
-    /**
-     * Logs the message to the server log.
-     *
-     * @param rawMessage - the raw json message
-     */
-    private void logMessage(String rawMessage) {
-        String username = ClientRegistry.getInstance().getUsernameBySocket(connection.getSocket());
-
-        ServerLogger.log(new LogEntry.Builder()
-                .logType(ServerLogger.LogType.MESSAGE)
-                .clientAddress(String.valueOf(connection.getSocket().getInetAddress().getHostAddress()))
-                .clientPort(connection.getSocket().getPort())
-                .username(username)
-                .direction("-->")
-                .message(rawMessage)
-                .build());
-    }
 }
@@ -0,0 +1,100 @@
+package shared.messages.handling;
+
+import shared.constants.ProtocolCommands;
+
+/**
+ * Hooks of a {@link MessageParser} for the side that uses it, e.g. metrics, message logging and error responses of
+ * the server. Every method has a default, a client only overrides what it needs and {@link #NONE} overrides nothing.
+ */
+public interface ParserListener {
+    /**
+     * A listener that only reports discarded and malformed frames on the console.
+     */
+    ParserListener NONE = new ParserListener() {
+    };
+
+    /**
+     * Get the maximum length of a frame, longer frames are discarded.
+     * @return the maximum frame length in bytes
+     */
+    default int getMaxFrameLength() {
+        return LineFrameDecoder.DEFAULT_MAX_FRAME_LENGTH;
+    }
+
+    /**
+     * Called for every chunk of bytes read from the connection, before they are decompressed and framed.
+     * @param bytes the number of bytes
+     */
+    default void onBytesReceived(int bytes) {
+    }
+
+    /**
+     * Check whether incoming messages are passed to {@link #logMessage(Object)}.
+     * @return true if messages are logged
+     */
+    default boolean isLoggingMessages() {
+        return false;
+    }
+
+    /**
+     * Logs an incoming message.
+     * @param rawMessage the raw message line or a {@link java.util.function.Supplier} that renders a binary message
+     */
+    default void logMessage(Object rawMessage) {
+    }
+
+    /**
+     * Called before a message is parsed.
+     * @return a context passed to {@link #onHandled}, e.g. a timing event, may be null
+     */
+    default Object beforeMessage() {
+        return null;
+    }
+
+    /**
+     * Called for every message that was parsed, before the filters of the registry are asked.
+     * @param command the command of the message
+     */
+    default void onReceived(ProtocolCommands command) {
+    }
+
+    /**
+     * Called after the handler of a message returned.
+     * @param context the context returned by {@link #beforeMessage()}
+     * @param command the command of the message
+     * @param frameLength the length of the message frame
+     * @param binary true if the message was a binary frame
+     * @param handlerNanos the time spent in the handler
+     */
+    default void onHandled(Object context, ProtocolCommands command, int frameLength, boolean binary, long handlerNanos) {
+    }
+
+    /**
+     * Called when a message could not be parsed or its handler failed.
+     * @param e the exception
+     */
+    default void onMessageError(Exception e) {
+    }
+
+    /**
+     * Called when a frame longer than {@link #getMaxFrameLength()} was discarded.
+     */
+    default void onOversizedFrame() {
+        System.err.println("Discarded a message longer than the maximum frame length.");
+    }
+
+    /**
+     * Called when the stream can not be framed or decompressed, the connection is closed afterwards.
+     */
+    default void onCorruptStream() {
+        System.err.println("Received a malformed message frame, disconnecting.");
+    }
+
+    /**
+     * Called when reading from the connection failed with anything but a lost connection.
+     * @param e the exception
+     */
+    default void onReadFailed(Exception e) {
+        System.err.println("Failed to read a message: " + e.getMessage());
+    }
+}
@@ -0,0 +1,6 @@
+package shared.messages.model.client;
+
+import java.util.List;
+
+public record FeatureReq(List<String> features) {
+}
@@ -0,0 +1,9 @@
+package shared.messages.model.server;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FeatureResp(String status, Integer code, List<String> features) {
+}
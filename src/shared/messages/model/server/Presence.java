@@ -0,0 +1,6 @@
+package shared.messages.model.server;
+
+import java.util.List;
+
+public record Presence(List<String> joined, List<String> left) {
+}
@@ -0,0 +1,496 @@
+package shared.utils;
+
+import shared.constants.ProtocolCommands;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class for the binary wire format, the counterpart of {@link JsonUtils}.
+ * A binary frame is {@code <length><command><fields>}:
+ * <ul>
+ *     <li>length: the number of bytes that follow, as an unsigned varint</li>
+ *     <li>command: the ordinal of the {@link ProtocolCommands} as a single byte</li>
+ *     <li>fields: the components of the message record in declaration order, without any names</li>
+ * </ul>
+ * Fields are encoded as:
+ * <ul>
+ *     <li>String: varint of the UTF-8 length + 1 followed by the UTF-8 bytes, 0 for null</li>
+ *     <li>int: zigzag varint</li>
+ *     <li>Integer: zigzag varint + 1, 0 for null</li>
+ *     <li>double: the 8 bytes of its IEEE 754 bits, big endian</li>
+ *     <li>boolean: 0 or 1, a Boolean uses 0 for null, 1 for false and 2 for true</li>
+ *     <li>List of Strings: varint of the size + 1 followed by the Strings, 0 for null</li>
+ * </ul>
+ * The codecs are built from the record components of the message classes of {@link JsonUtils} when the class is
+ * loaded, so a message class with a field type that can not be encoded fails at startup and not on the first message.
+ */
+public class BinaryCodec {
+    private static final int MAX_VARINT_LENGTH = 5;
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private static final Map<ProtocolCommands, RecordCodec> codecs = new EnumMap<>(ProtocolCommands.class);
+    private static final ProtocolCommands[] commands = ProtocolCommands.values();
+
+    static {
+        if (commands.length > 256) {
+            throw new IllegalStateException("The command of a binary frame is a single byte");
+        }
+
+        for (ProtocolCommands command : commands) {
+            Class<?> clazz = JsonUtils.getClassFromCommand(command);
+            if (clazz != null) {
+                codecs.put(command, new RecordCodec(clazz));
+            }
+        }
+    }
+
+    /**
+     * Convert an object to a binary frame including the length prefix.
+     * @param message Message object, e.g. {@link shared.messages.model.server.Broadcast}
+     * @return the encoded frame
+     */
+    public static byte[] classToFrame(Object message) {
+        return classToFrame(JsonUtils.getCommandFromClass(message.getClass()), message);
+    }
+
+    /**
+     * Convert a command and its message to a binary frame including the length prefix.
+     * @param command Protocol command of the message
+     * @param message Message object or null for commands without a message class, e.g. UNKNOWN_COMMAND
+     * @return the encoded frame
+     */
+    public static byte[] classToFrame(ProtocolCommands command, Object message) {
+        Output body = new Output();
+        body.writeByte(command.ordinal());
+        if (message != null) {
+            RecordCodec codec = codecs.get(command);
+            if (codec == null) {
+                throw new RuntimeException("Cannot find class for command: " + command);
+            }
+            codec.write(message, body);
+        }
+
+        byte[] frame = new byte[varIntLength(body.length) + body.length];
+        int offset = writeVarInt(body.length, frame, 0);
+        System.arraycopy(body.bytes, 0, frame, offset, body.length);
+        return frame;
+    }
+
+    /**
+     * Convert a binary frame without its length prefix to a specific message class.
+     * Throws the same exceptions as {@link JsonUtils#messageToClass(byte[], int, int)}, so unknown commands and
+     * malformed bodies are answered the same way for both wire formats.
+     * @param frame Buffer that holds the frame
+     * @param offset Start of the command byte in the buffer
+     * @param length Length of the command byte and the fields
+     * @return Message object
+     * @param <T> Type of the message object
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T frameToClass(byte[] frame, int offset, int length) {
+        if (length == 0) {
+            throw new IllegalArgumentException("Message cannot be null or empty");
+        }
+
+        int ordinal = frame[offset] & 0xFF;
+        if (ordinal >= commands.length) {
+            throw new RuntimeException("Unknown command: " + ordinal);
+        }
+
+        ProtocolCommands command = commands[ordinal];
+        RecordCodec codec = codecs.get(command);
+        if (codec == null) {
+            throw new RuntimeException("Cannot find class for command: " + command);
+        }
+
+        Input input = new Input(frame, offset + 1, offset + length);
+        try {
+            Object message = codec.read(input);
+            if (input.position != input.end) {
+                throw new IllegalArgumentException((input.end - input.position) + " unexpected bytes after the message");
+            }
+            return (T) message;
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Failed to parse message content: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the command of a binary frame without decoding its fields.
+     * @param frame Buffer that holds the frame
+     * @param offset Start of the command byte in the buffer
+     * @return Protocol command or null if the command byte is unknown
+     */
+    public static ProtocolCommands commandFromFrame(byte[] frame, int offset) {
+        int ordinal = frame[offset] & 0xFF;
+        return ordinal < commands.length ? commands[ordinal] : null;
+    }
+
+    /**
+     * Get the number of bytes of an unsigned varint.
+     * @param value the value, treated as unsigned
+     * @return the number of bytes between 1 and 5
+     */
+    public static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Writes an unsigned varint: 7 bits per byte, least significant group first, the high bit marks that more follow.
+     * @param value the value, treated as unsigned
+     * @param buffer the buffer to write to, with room for {@link #varIntLength(int)} bytes
+     * @param offset the position to write at
+     * @return the position after the varint
+     */
+    public static int writeVarInt(int value, byte[] buffer, int offset) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * The codec of one message record: the accessors and the canonical constructor, with a field codec per component.
+     */
+    private static final class RecordCodec {
+        private final FieldType[] types;
+        private final MethodHandle[] accessors;
+        private final MethodHandle constructor;
+
+        RecordCodec(Class<?> clazz) {
+            if (!clazz.isRecord()) {
+                throw new IllegalStateException("Message class is not a record: " + clazz.getName());
+            }
+
+            RecordComponent[] components = clazz.getRecordComponents();
+            types = new FieldType[components.length];
+            accessors = new MethodHandle[components.length];
+            Class<?>[] parameterTypes = new Class<?>[components.length];
+
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                for (int i = 0; i < components.length; i++) {
+                    types[i] = FieldType.of(clazz, components[i]);
+                    accessors[i] = lookup.unreflect(components[i].getAccessor())
+                            .asType(MethodType.methodType(Object.class, Object.class));
+                    parameterTypes[i] = components[i].getType();
+                }
+
+                constructor = lookup.unreflectConstructor(clazz.getDeclaredConstructor(parameterTypes))
+                        .asType(MethodType.methodType(Object.class, parameterTypes).generic())
+                        .asSpreader(Object[].class, components.length);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot access message record " + clazz.getName(), e);
+            }
+        }
+
+        void write(Object message, Output output) {
+            try {
+                for (int i = 0; i < types.length; i++) {
+                    types[i].write((Object) accessors[i].invokeExact(message), output);
+                }
+            } catch (Throwable e) {
+                throw new RuntimeException("Failed to encode " + message.getClass().getSimpleName(), e);
+            }
+        }
+
+        Object read(Input input) {
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                values[i] = types[i].read(input);
+            }
+
+            try {
+                return (Object) constructor.invokeExact(values);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * The field types that can be used in message records.
+     */
+    private enum FieldType {
+        STRING {
+            @Override
+            void write(Object value, Output output) {
+                output.writeString((String) value);
+            }
+
+            @Override
+            Object read(Input input) {
+                return input.readString();
+            }
+        },
+        INT {
+            @Override
+            void write(Object value, Output output) {
+                output.writeVarInt(zigzag((Integer) value));
+            }
+
+            @Override
+            Object read(Input input) {
+                return unzigzag(input.readVarInt());
+            }
+        },
+        NULLABLE_INT {
+            @Override
+            void write(Object value, Output output) {
+                if (value == null) {
+                    output.writeVarLong(0);
+                } else {
+                    output.writeVarLong((zigzag((Integer) value) & 0xFFFFFFFFL) + 1);
+                }
+            }
+
+            @Override
+            Object read(Input input) {
+                long value = input.readVarLong();
+                return value == 0 ? null : unzigzag((int) (value - 1));
+            }
+        },
+        DOUBLE {
+            @Override
+            void write(Object value, Output output) {
+                output.writeLong(Double.doubleToRawLongBits((Double) value));
+            }
+
+            @Override
+            Object read(Input input) {
+                return Double.longBitsToDouble(input.readLong());
+            }
+        },
+        BOOLEAN {
+            @Override
+            void write(Object value, Output output) {
+                output.writeByte((Boolean) value ? 1 : 0);
+            }
+
+            @Override
+            Object read(Input input) {
+                return input.readByte() != 0;
+            }
+        },
+        NULLABLE_BOOLEAN {
+            @Override
+            void write(Object value, Output output) {
+                output.writeByte(value == null ? 0 : (Boolean) value ? 2 : 1);
+            }
+
+            @Override
+            Object read(Input input) {
+                int value = input.readByte();
+                return value == 0 ? null : value == 2;
+            }
+        },
+        STRING_LIST {
+            @Override
+            void write(Object value, Output output) {
+                if (value == null) {
+                    output.writeVarInt(0);
+                    return;
+                }
+
+                List<?> list = (List<?>) value;
+                output.writeVarInt(list.size() + 1);
+                for (Object element : list) {
+                    output.writeString((String) element);
+                }
+            }
+
+            @Override
+            Object read(Input input) {
+                int size = input.readVarInt();
+                if (size == 0) {
+                    return null;
+                }
+
+                size--;
+                if (size > input.end - input.position) {
+                    // every element takes at least one byte
+                    throw new IllegalArgumentException("List size " + size + " exceeds the message length");
+                }
+                List<String> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(input.readString());
+                }
+                return Collections.unmodifiableList(list);
+            }
+        };
+
+        abstract void write(Object value, Output output);
+
+        abstract Object read(Input input);
+
+        static FieldType of(Class<?> clazz, RecordComponent component) {
+            Class<?> type = component.getType();
+            if (type == String.class) {
+                return STRING;
+            } else if (type == int.class) {
+                return INT;
+            } else if (type == Integer.class) {
+                return NULLABLE_INT;
+            } else if (type == double.class) {
+                return DOUBLE;
+            } else if (type == boolean.class) {
+                return BOOLEAN;
+            } else if (type == Boolean.class) {
+                return NULLABLE_BOOLEAN;
+            } else if (type == List.class && component.getGenericType() instanceof ParameterizedType parameterized) {
+                Type[] arguments = parameterized.getActualTypeArguments();
+                if (arguments.length == 1 && arguments[0] == String.class) {
+                    return STRING_LIST;
+                }
+            }
+            throw new IllegalStateException("Unsupported field " + clazz.getSimpleName() + "." + component.getName()
+                    + " of type " + component.getGenericType().getTypeName());
+        }
+
+        private static int zigzag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+
+        private static int unzigzag(int value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    /**
+     * A growable byte array for encoding the fields of a message.
+     */
+    private static final class Output {
+        private byte[] bytes = new byte[64];
+        private int length;
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(MAX_VARINT_LENGTH);
+            length = BinaryCodec.writeVarInt(value, bytes, length);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+
+            byte[] utf8 = value.isEmpty() ? EMPTY_BODY : value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(utf8.length + 1);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (length + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + additional, bytes.length * 2));
+            }
+        }
+    }
+
+    /**
+     * A cursor over the fields of a received frame. Reading past the end of the frame fails.
+     */
+    private static final class Input {
+        private final byte[] bytes;
+        private final int end;
+        private int position;
+
+        Input(byte[] bytes, int position, int end) {
+            this.bytes = bytes;
+            this.position = position;
+            this.end = end;
+        }
+
+        int readByte() {
+            if (position >= end) {
+                throw new IllegalArgumentException("Message ends unexpectedly");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        int readVarInt() {
+            long value = readVarLong();
+            if (value >>> 32 != 0) {
+                throw new IllegalArgumentException("Varint out of range");
+            }
+            return (int) value;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Varint too long");
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+
+            length--;
+            if (length > end - position) {
+                throw new IllegalArgumentException("String length " + length + " exceeds the message length");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -2,19 +2,45 @@ package shared.utils;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import shared.constants.ProtocolCommands;
 import shared.messages.model.client.*;
 import shared.messages.model.server.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Utility class for converting messages to classes and vice versa.
+ * The codecs are built once when the class is loaded: every command has a pre-built Jackson {@link ObjectReader} and
+ * {@link ObjectWriter} for its message class, and the command of a message class is looked up with a
+ * {@link ClassValue}, so converting a message never searches the mapping.
  */
 public class JsonUtils {
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private static final Map<ProtocolCommands, Class<?>> commandToClassMapping = new HashMap<>();
+    private static final Map<ProtocolCommands, ObjectReader> readers = new EnumMap<>(ProtocolCommands.class);
+    private static final Map<ProtocolCommands, ObjectWriter> writers = new EnumMap<>(ProtocolCommands.class);
+    private static final Map<String, ProtocolCommands> commandsByName = new HashMap<>();
+    private static final ClassValue<ProtocolCommands> classToCommand = new ClassValue<>() {
+        @Override
+        protected ProtocolCommands computeValue(Class<?> type) {
+            for (Map.Entry<ProtocolCommands, Class<?>> entry : commandToClassMapping.entrySet()) {
+                if (entry.getValue() == type) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        }
+    };
+    private static final byte[] EMPTY_PAYLOAD = "{}".getBytes(StandardCharsets.US_ASCII);
+    // commands grouped by the length of their name, so a command token can be looked up without creating a String
+    private static final ProtocolCommands[][] commandsByNameLength = groupCommandsByNameLength();
 
     static {
         commandToClassMapping.put(ProtocolCommands.READY, Ready.class);
@@ -55,6 +81,17 @@ public class JsonUtils {
         commandToClassMapping.put(ProtocolCommands.TRANSFER_CHECKSUM, TransferChecksum.class);
         commandToClassMapping.put(ProtocolCommands.TRANSFER_SUCCESS, TransferSuccess.class);
         commandToClassMapping.put(ProtocolCommands.TRANSFER_FAILED, TransferFailed.class);
+        commandToClassMapping.put(ProtocolCommands.FEATURE_REQ, FeatureReq.class);
+        commandToClassMapping.put(ProtocolCommands.FEATURE_RESP, FeatureResp.class);
+        commandToClassMapping.put(ProtocolCommands.PRESENCE, Presence.class);
+
+        for (Map.Entry<ProtocolCommands, Class<?>> entry : commandToClassMapping.entrySet()) {
+            readers.put(entry.getKey(), objectMapper.readerFor(entry.getValue()));
+            writers.put(entry.getKey(), objectMapper.writerFor(entry.getValue()));
+        }
+        for (ProtocolCommands command : ProtocolCommands.values()) {
+            commandsByName.put(command.name(), command);
+        }
     }
 
     /**
@@ -63,11 +100,11 @@ public class JsonUtils {
      * @return Protocol command or throws an exception if not found
      */
     public static ProtocolCommands getCommandFromClass(Class<?> clazz) {
-        return commandToClassMapping.entrySet().stream()
-                .filter(entry -> entry.getValue().equals(clazz))
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Cannot find command for class " + clazz.getName()));
+        ProtocolCommands command = classToCommand.get(clazz);
+        if (command == null) {
+            throw new RuntimeException("Cannot find command for class " + clazz.getName());
+        }
+        return command;
     }
 
     /**
@@ -111,28 +148,120 @@ public class JsonUtils {
             content = "{}";
         }
 
-        // Validate the command and get the corresponding class
-        ProtocolCommands command;
-        try {
-            command = ProtocolCommands.valueOf(commandStr);
-        } catch (IllegalArgumentException e) {
+        // Validate the command and get the corresponding reader
+        ProtocolCommands command = commandsByName.get(commandStr);
+        if (command == null) {
             throw new RuntimeException("Unknown command: " + commandStr);
         }
 
-        Class<?> clazz = getClassFromCommand(command);
-        if (clazz == null) {
+        ObjectReader reader = readers.get(command);
+        if (reader == null) {
             throw new RuntimeException("Cannot find class for command: " + command);
         }
 
         try {
             // Parse JSON payload into the corresponding class
-            return (T) objectMapper.readValue(content, clazz);
+            return reader.readValue(content);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Failed to parse message content: " + e.getMessage());
         }
     }
 
 
+    /**
+     * Convert a message frame to a specific message class without creating intermediate Strings.
+     * The command token is looked up directly in the bytes and the payload is parsed by Jackson from the frame.
+     * Allows empty payload.
+     * @param frame Buffer that holds the message in the format <command> <json payload>
+     * @param offset Start of the message in the buffer
+     * @param length Length of the message
+     * @return Message object
+     * @param <T> Type of the message object
+     */
+    public static <T> T messageToClass(byte[] frame, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && (frame[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (frame[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            throw new IllegalArgumentException("Message cannot be null or empty");
+        }
+
+        int commandEnd = start;
+        while (commandEnd < end && frame[commandEnd] != ' ') {
+            commandEnd++;
+        }
+
+        ProtocolCommands command = commandFromBytes(frame, start, commandEnd - start);
+        if (command == null) {
+            throw new RuntimeException("Unknown command: " + new String(frame, start, commandEnd - start, StandardCharsets.UTF_8));
+        }
+
+        ObjectReader reader = readers.get(command);
+        if (reader == null) {
+            throw new RuntimeException("Cannot find class for command: " + command);
+        }
+
+        int payloadStart = commandEnd;
+        while (payloadStart < end && (frame[payloadStart] & 0xFF) <= ' ') {
+            payloadStart++;
+        }
+
+        try {
+            if (payloadStart == end) {
+                return reader.readValue(EMPTY_PAYLOAD);
+            }
+            return reader.readValue(frame, payloadStart, end - payloadStart);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse message content: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Looks up a command by its name in a byte buffer.
+     * @param bytes Buffer that holds the name
+     * @param offset Start of the name
+     * @param length Length of the name
+     * @return Protocol command or null if there is no command with this name
+     */
+    public static ProtocolCommands commandFromBytes(byte[] bytes, int offset, int length) {
+        if (length >= commandsByNameLength.length) {
+            return null;
+        }
+
+        for (ProtocolCommands command : commandsByNameLength[length]) {
+            String name = command.name();
+            int i = 0;
+            while (i < length && name.charAt(i) == bytes[offset + i]) {
+                i++;
+            }
+            if (i == length) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    private static ProtocolCommands[][] groupCommandsByNameLength() {
+        int maxLength = 0;
+        for (ProtocolCommands command : ProtocolCommands.values()) {
+            maxLength = Math.max(maxLength, command.name().length());
+        }
+
+        ProtocolCommands[][] grouped = new ProtocolCommands[maxLength + 1][0];
+        for (ProtocolCommands command : ProtocolCommands.values()) {
+            ProtocolCommands[] group = grouped[command.name().length()];
+            group = Arrays.copyOf(group, group.length + 1);
+            group[group.length - 1] = command;
+            grouped[command.name().length()] = group;
+        }
+        return grouped;
+    }
+
     /**
      * Convert an object to a message string following the protocol message format:
      * <command> <json payload>
@@ -140,12 +269,11 @@ public class JsonUtils {
      * @return Message string in the format <command> <json payload>
      */
     public static String classToMessage(Object obj) {
-        Class<?> clazz = obj.getClass();
-        ProtocolCommands command = getCommandFromClass(clazz);
+        ProtocolCommands command = getCommandFromClass(obj.getClass());
 
         try {
-            String content = objectMapper.writeValueAsString(obj);
-            return command.toString() + " " + content;
+            String content = writers.get(command).writeValueAsString(obj);
+            return command.name() + " " + content;
         } catch (JsonProcessingException e) {
             e.printStackTrace();
             return null;
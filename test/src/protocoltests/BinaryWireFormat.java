@@ -0,0 +1,236 @@
+package src.protocoltests;
+
+import org.junit.jupiter.api.*;
+import shared.messages.model.client.*;
+import shared.messages.model.server.*;
+import shared.utils.BinaryCodec;
+import shared.utils.JsonUtils;
+import src.protocoltests.protocol.utils.Utils;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static java.time.Duration.ofMillis;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryWireFormat {
+
+    private final static Properties PROPS = new Properties();
+
+    private final static int MAX_DELTA_ALLOWED_MS = 100;
+
+    private final static List<Object> MESSAGES = List.of(
+            new BroadcastReq("Hello everyone, ünïcödé 👋"),
+            new Bye(),
+            new ClientsReq(),
+            new Enter("myname"),
+            new FeatureReq(List.of("BINARY", "UNKNOWN")),
+            new Pong(),
+            new PrivateReq("other", "psst"),
+            new RPSChoiceReq("rock"),
+            new RPSStartReq("other"),
+            new TransferAccept("id"),
+            new TransferChecksum("uuid", "checksum"),
+            new TransferReject("id"),
+            new TransferReq("other", "file.txt", 1234.5, "checksum", "session"),
+            new Broadcast("myname", ""),
+            new BroadcastResp("ERROR", 6001),
+            new ByeResp("OK"),
+            new Clients(List.of("a", "b", "c")),
+            new Clients(List.of()),
+            new ClientsResp("ERROR", 6000),
+            new EnterResp("OK", null),
+            new FeatureResp("OK", null, List.of("BINARY")),
+            new Hangup(7001),
+            new Joined("myname"),
+            new Left("myname"),
+            new Ping(),
+            new Presence(List.of("a", "b"), List.of()),
+            new PongError(8000),
+            new Private("other", "psst"),
+            new PrivateResp("ERROR", -1),
+            new RPSChoiceResp("OK", null),
+            new RPSEnd("myname", "paper"),
+            new RPSStart("other"),
+            new RPSStartResp("ERROR", 10002, List.of("a", "b")),
+            new Ready("1.6.0"),
+            new RpsError(10008),
+            new TransferAcceptResp("OK", null),
+            new TransferAccepted("other", "file.txt", "uuid"),
+            new TransferFailed("id", "file.txt", 12002),
+            new TransferRejectResp("ERROR", 9001),
+            new TransferRejected("other"),
+            new TransferResp("session", "OK", null),
+            new TransferSuccess("id", "file.txt")
+    );
+
+    private final List<Socket> sockets = new ArrayList<>();
+
+    @BeforeAll
+    static void setupAll() throws IOException {
+        InputStream in = BinaryWireFormat.class.getResourceAsStream("testconfig.properties");
+        PROPS.load(in);
+        in.close();
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    @Test
+    void tc67TextAndBinaryEncodingsCarryIdenticalMessages() {
+        for (Object message : MESSAGES) {
+            Object fromText = JsonUtils.messageToClass(JsonUtils.classToMessage(message));
+            Object fromBinary = binaryRoundTrip(message);
+            assertEquals(message, fromText);
+            assertEquals(message, fromBinary);
+            assertEquals(fromText, fromBinary);
+        }
+    }
+
+    @Test
+    void tc68NullFieldsSurviveBothEncodings() {
+        List<Object> messages = List.of(
+                new Enter(null),
+                new FeatureReq(null),
+                new Clients(null),
+                new RPSStartResp("OK", null, null),
+                new TransferReq("other", null, 0, null, null)
+        );
+        for (Object message : messages) {
+            assertEquals(message, JsonUtils.messageToClass(JsonUtils.classToMessage(message)));
+            assertEquals(message, binaryRoundTrip(message));
+        }
+    }
+
+    @Test
+    void tc69MalformedBinaryMessageIsRejected() {
+        byte[] frame = BinaryCodec.classToFrame(new Enter("myname"));
+        int prefix = BinaryCodec.varIntLength(frame.length - 1);
+
+        RuntimeException truncated = assertThrows(RuntimeException.class,
+                () -> BinaryCodec.frameToClass(frame, prefix, frame.length - prefix - 1));
+        assertTrue(truncated.getMessage().contains("Failed to parse message content"));
+
+        byte[] unknown = {(byte) 0xFF};
+        RuntimeException unknownCommand = assertThrows(RuntimeException.class, () -> BinaryCodec.frameToClass(unknown, 0, 1));
+        assertTrue(unknownCommand.getMessage().contains("Unknown command"));
+    }
+
+    @Test
+    void tc70FeatureReqSwitchesToBinaryWireFormat() throws IOException {
+        Socket s = connect();
+        InputStream in = s.getInputStream();
+        OutputStream out = s.getOutputStream();
+        receiveLineWithTimeout(in); //ready message
+
+        sendLine(out, Utils.objectToMessage(new FeatureReq(List.of("BINARY"))));
+        FeatureResp featureResp = Utils.messageToObject(receiveLineWithTimeout(in));
+        assertEquals("OK", featureResp.status());
+        assertEquals(List.of("BINARY"), featureResp.features());
+
+        out.write(BinaryCodec.classToFrame(new Enter("binary1")));
+        out.flush();
+        EnterResp enterResp = receiveFrameWithTimeout(in);
+        assertEquals(new EnterResp("OK", null), enterResp);
+    }
+
+    @Test
+    void tc71TextAndBinaryClientsShareTheServer() throws IOException {
+        Socket binary = connect();
+        InputStream binaryIn = binary.getInputStream();
+        OutputStream binaryOut = binary.getOutputStream();
+        receiveLineWithTimeout(binaryIn); //ready message
+        sendLine(binaryOut, Utils.objectToMessage(new FeatureReq(List.of("BINARY"))));
+        receiveLineWithTimeout(binaryIn); //feature response
+        binaryOut.write(BinaryCodec.classToFrame(new Enter("binary2")));
+        binaryOut.flush();
+        assertEquals(new EnterResp("OK", null), receiveFrameWithTimeout(binaryIn));
+
+        Socket text = connect();
+        InputStream textIn = text.getInputStream();
+        OutputStream textOut = text.getOutputStream();
+        receiveLineWithTimeout(textIn); //ready message
+        sendLine(textOut, Utils.objectToMessage(new Enter("text2")));
+        EnterResp enterResp = Utils.messageToObject(receiveLineWithTimeout(textIn));
+        assertEquals("OK", enterResp.status());
+        assertEquals(new Joined("text2"), receiveFrameWithTimeout(binaryIn));
+
+        binaryOut.write(BinaryCodec.classToFrame(new BroadcastReq("from binary")));
+        binaryOut.flush();
+        assertEquals(new BroadcastResp("OK", null), receiveFrameWithTimeout(binaryIn));
+        Broadcast broadcast = Utils.messageToObject(receiveLineWithTimeout(textIn));
+        assertEquals(new Broadcast("binary2", "from binary"), broadcast);
+
+        sendLine(textOut, Utils.objectToMessage(new BroadcastReq("from text")));
+        assertEquals(new Broadcast("text2", "from text"), receiveFrameWithTimeout(binaryIn));
+    }
+
+    private static Object binaryRoundTrip(Object message) {
+        byte[] frame = BinaryCodec.classToFrame(message);
+        int prefix = BinaryCodec.varIntLength(frame.length - 1);
+        assertEquals(frame.length - prefix, readVarInt(new ByteArrayInputStream(frame)));
+        return BinaryCodec.frameToClass(frame, prefix, frame.length - prefix);
+    }
+
+    private Socket connect() throws IOException {
+        Socket s = new Socket(PROPS.getProperty("host"), Integer.parseInt(PROPS.getProperty("port")));
+        sockets.add(s);
+        return s;
+    }
+
+    private static void sendLine(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private String receiveLineWithTimeout(InputStream in) {
+        return assertTimeoutPreemptively(ofMillis(MAX_DELTA_ALLOWED_MS), () -> {
+            // read byte by byte, the binary frames that follow must stay in the stream
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b == -1) {
+                    throw new EOFException();
+                }
+                line.write(b);
+            }
+            return line.toString(StandardCharsets.UTF_8).trim();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T receiveFrameWithTimeout(InputStream in) {
+        return (T) assertTimeoutPreemptively(ofMillis(MAX_DELTA_ALLOWED_MS), () -> {
+            int length = readVarInt(in);
+            byte[] frame = in.readNBytes(length);
+            assertEquals(length, frame.length);
+            return BinaryCodec.frameToClass(frame, 0, length);
+        });
+    }
+
+    private static int readVarInt(InputStream in) {
+        try {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.read();
+                if (b == -1) {
+                    throw new EOFException();
+                }
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
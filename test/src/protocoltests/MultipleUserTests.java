@@ -9,7 +9,10 @@ import src.protocoltests.protocol.utils.Utils;
 
 import java.io.*;
 import java.net.Socket;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 import static java.time.Duration.ofMillis;
 import static org.junit.jupiter.api.Assertions.*;
@@ -756,6 +759,58 @@ class MultipleUserTests {
         assertEquals(9002, transferResp.code()); // 9002 - cannot send to self
     }
 
+    @Test
+    void tc72PresenceFeatureBatchesJoinedAndLeft() throws JsonProcessingException {
+        receiveLineWithTimeout(inUser1); //ready message
+        receiveLineWithTimeout(inUser2); //ready message
+        receiveLineWithTimeout(inUser3); //ready message
+
+        // user1 asks for batched presence and logs in first
+        outUser1.println(Utils.objectToMessage(new FeatureReq(List.of("PRESENCE"))));
+        outUser1.flush();
+        FeatureResp featureResp = Utils.messageToObject(receiveLineWithTimeout(inUser1));
+        assertEquals(List.of("PRESENCE"), featureResp.features());
+        outUser1.println(Utils.objectToMessage(new Enter("user1")));
+        outUser1.flush();
+        receiveLineWithTimeout(inUser1); //OK
+
+        // user2 does not ask for batched presence
+        // a JOINED is announced after the ENTER_RESP, so the others may get it anywhere in between
+        outUser2.println(Utils.objectToMessage(new Enter("user2")));
+        outUser2.flush();
+        assertInstanceOf(EnterResp.class, receiveSkipping(inUser2, new Joined("user1")));
+
+        // user3 joins, user2 gets it right away
+        outUser3.println(Utils.objectToMessage(new Enter("user3")));
+        outUser3.flush();
+        assertInstanceOf(EnterResp.class, receiveSkipping(inUser3, new Joined("user1"), new Joined("user2")));
+        assertEquals(new Joined("user3"), receiveSkipping(inUser2, new Joined("user1")));
+
+        // user1 gets the joins in one or more PRESENCE messages, depending on the windows they fall in
+        Set<String> joined = new LinkedHashSet<>();
+        Set<String> left = new LinkedHashSet<>();
+        while (!joined.contains("user2") || !joined.contains("user3")) {
+            Presence presence = Utils.messageToObject(receiveLineWithTimeout(inUser1));
+            joined.addAll(presence.joined());
+            left.addAll(presence.left());
+        }
+
+        // user3 leaves again
+        outUser3.println(Utils.objectToMessage(new Bye()));
+        outUser3.flush();
+        assertInstanceOf(ByeResp.class, receiveSkipping(inUser3, new Joined("user1"), new Joined("user2")));
+        assertEquals(new Left("user3"), receiveSkipping(inUser2, new Joined("user1")));
+        while (!left.contains("user3")) {
+            Presence presence = Utils.messageToObject(receiveLineWithTimeout(inUser1));
+            joined.addAll(presence.joined());
+            left.addAll(presence.left());
+        }
+
+        // user1 is not told about itself
+        assertEquals(Set.of("user2", "user3"), joined);
+        assertEquals(Set.of("user3"), left);
+    }
+
     @Test
     public void loginAndReceiveReady() throws JsonProcessingException {
         receiveLineWithTimeout(inUser1); //ready message
@@ -790,4 +845,12 @@ class MultipleUserTests {
     private String receiveLineWithTimeout(BufferedReader reader, int timeout) {
         return assertTimeoutPreemptively(ofMillis(timeout), reader::readLine);
     }
+
+    private Object receiveSkipping(BufferedReader reader, Object... skipped) throws JsonProcessingException {
+        Object message = Utils.messageToObject(receiveLineWithTimeout(reader));
+        while (List.of(skipped).contains(message)) {
+            message = Utils.messageToObject(receiveLineWithTimeout(reader));
+        }
+        return message;
+    }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import org.junit.jupiter.api.*;
 import shared.messages.model.server.BroadcastResp;
 import shared.messages.model.server.EnterResp;
+import shared.messages.model.server.ParseError;
 import src.protocoltests.protocol.utils.Utils;
 
 import java.io.*;
@@ -59,6 +60,25 @@ class PacketBreakup {
         assertEquals("OK", broadcastResp.status());
     }
 
+    @Test
+    void tc73MessageLongerThanMaximumFrameLengthReturnsParseError() throws JsonProcessingException {
+        receiveLineWithTimeout(in); //ready message
+        out.print("BROADCAST_REQ {\"message\":\"");
+        out.flush();
+        for (int i = 0; i < 10; i++) {
+            out.print("x".repeat(10_000));
+            out.flush();
+        }
+        out.print("\"}\r\nENTER {\"username\":\"myname\"}\r\n");
+        out.flush();
+        String serverResponse = receiveLineWithTimeout(in);
+        ParseError parseError = Utils.messageToObject(serverResponse);
+        assertNotNull(parseError);
+        serverResponse = receiveLineWithTimeout(in);
+        EnterResp enterResp = Utils.messageToObject(serverResponse);
+        assertEquals("OK", enterResp.status());
+    }
+
     private String receiveLineWithTimeout(BufferedReader reader){
         return assertTimeoutPreemptively(ofMillis(MAX_DELTA_ALLOWED_MS), reader::readLine);
     }
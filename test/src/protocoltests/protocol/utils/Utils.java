@@ -48,6 +48,12 @@ public class Utils {
         objToNameMapping.put(TransferSuccess.class, "TRANSFER_SUCCESS");
         objToNameMapping.put(TransferFailed.class, "TRANSFER_FAILED");
         objToNameMapping.put(TransferChecksum.class, "TRANSFER_CHECKSUM");
+        objToNameMapping.put(FeatureReq.class, "FEATURE_REQ");
+        objToNameMapping.put(FeatureResp.class, "FEATURE_RESP");
+        objToNameMapping.put(Presence.class, "PRESENCE");
+        objToNameMapping.put(Bye.class, "BYE");
+        objToNameMapping.put(ByeResp.class, "BYE_RESP");
+        objToNameMapping.put(Left.class, "LEFT");
 
     }
 